@@ -0,0 +1,115 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.benchmarks;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shape of a FLUX report (header plus repeated vessel positions) for the JAXB benchmarks, without depending on the
+ * generated FLUX schema classes.
+ */
+@XmlRootElement(name = "FLUXReport")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class FluxReport {
+
+    @XmlElement(name = "FLUXReportDocument")
+    private Header header;
+
+    @XmlElement(name = "VesselPosition")
+    private List<Position> positions = new ArrayList<>();
+
+    /**
+     * @param positionCount the number of positions, 500 give a message of about 100 KB like a large FA report
+     */
+    public static FluxReport create(int positionCount) {
+        FluxReport report = new FluxReport();
+        report.header = new Header();
+        report.header.id = "f3a2b8f4-6c1e-4f63-9a4b-1f2d3c4e5f60";
+        report.header.purposeCode = "9";
+        report.header.owner = "XEU";
+        report.header.creationDateTime = "2020-05-04T10:15:30Z";
+        for (int i = 0; i < positionCount; i++) {
+            Position position = new Position();
+            position.vesselId = "SWE" + (10000000 + i % 50);
+            position.typeCode = "POS";
+            position.dateTime = String.format("2020-05-04T%02d:%02d:00Z", i / 60 % 24, i % 60);
+            position.latitude = 57.5 + i * 0.001;
+            position.longitude = 11.2 + i * 0.002;
+            position.speed = 8.5;
+            position.course = 270;
+            position.activity = "FISHING";
+            report.positions.add(position);
+        }
+        return report;
+    }
+
+    public Header getHeader() {
+        return header;
+    }
+
+    public List<Position> getPositions() {
+        return positions;
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Header {
+
+        @XmlElement(name = "ID")
+        private String id;
+
+        @XmlElement(name = "PurposeCode")
+        private String purposeCode;
+
+        @XmlElement(name = "OwnerFLUXPartyID")
+        private String owner;
+
+        @XmlElement(name = "CreationDateTime")
+        private String creationDateTime;
+
+        public String getId() {
+            return id;
+        }
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Position {
+
+        @XmlAttribute(name = "vesselId")
+        private String vesselId;
+
+        @XmlElement(name = "TypeCode")
+        private String typeCode;
+
+        @XmlElement(name = "ObtainedOccurrenceDateTime")
+        private String dateTime;
+
+        @XmlElement(name = "LatitudeMeasure")
+        private double latitude;
+
+        @XmlElement(name = "LongitudeMeasure")
+        private double longitude;
+
+        @XmlElement(name = "SpeedValueMeasure")
+        private double speed;
+
+        @XmlElement(name = "CourseValueMeasure")
+        private double course;
+
+        @XmlElement(name = "ActivityTypeCode")
+        private String activity;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.benchmarks;
+
+import eu.europa.ec.fisheries.uvms.commons.geometry.mapper.GeometryCodecs;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geojson.geom.GeometryJSON;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.WKTWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per call instantiation of the WKT and GeoJSON readers and writers, as the mapper did before, against the per thread
+ * instances of {@link GeometryCodecs}, on the position sized geometries where the instantiation matters most.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class GeometryCodecsBenchmark {
+
+    private Geometry geometry;
+    private String wkt;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        geometry = new GeometryFactory().createPoint(new Coordinate(11.2, 57.5));
+        wkt = new WKTWriter().write(geometry);
+        json = new GeometryJSON().toString(geometry);
+    }
+
+    @Benchmark
+    public String newWktWriter() {
+        return new WKTWriter().write(geometry);
+    }
+
+    @Benchmark
+    public String cachedWktWriter() {
+        return GeometryCodecs.wktWriter().write(geometry);
+    }
+
+    @Benchmark
+    public Geometry newWktReader() throws ParseException {
+        return new WKTReader().read(wkt);
+    }
+
+    @Benchmark
+    public Geometry cachedWktReader() throws ParseException {
+        return GeometryCodecs.wktReader().read(wkt);
+    }
+
+    @Benchmark
+    public String newGeometryJsonWriter() {
+        return new GeometryJSON().toString(geometry);
+    }
+
+    @Benchmark
+    public String cachedGeometryJsonWriter() {
+        return GeometryCodecs.geometryJson().toString(geometry);
+    }
+
+    @Benchmark
+    public Geometry newGeometryJsonReader() throws IOException {
+        return new GeometryJSON().read(new StringReader(json));
+    }
+
+    @Benchmark
+    public Geometry cachedGeometryJsonReader() throws IOException {
+        return GeometryCodecs.geometryJson().read(new StringReader(json));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.benchmarks;
+
+import eu.europa.ec.fisheries.uvms.commons.geometry.mapper.GeometryMapper;
+import eu.europa.ec.fisheries.uvms.commons.geometry.model.GeometryWrapper;
+import eu.europa.ec.fisheries.uvms.commons.geometry.model.StringWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * WKT, WKB, TWKB and GeoJSON conversions of a single position and of a track of the given number of positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryMapperBenchmark {
+
+    @Param({"1", "1000"})
+    public int points;
+
+    private Geometry geometry;
+    private String wkt;
+    private String json;
+    private byte[] wkb;
+    private byte[] twkb;
+
+    @Setup
+    public void setUp() {
+        GeometryFactory factory = new GeometryFactory();
+        if (points == 1) {
+            geometry = factory.createPoint(new Coordinate(11.2, 57.5));
+        } else {
+            Coordinate[] coordinates = new Coordinate[points];
+            for (int i = 0; i < points; i++) {
+                coordinates[i] = new Coordinate(11.2 + i * 0.0013, 57.5 + i * 0.0007);
+            }
+            geometry = factory.createLineString(coordinates);
+        }
+        geometry.setSRID(4326);
+        wkt = GeometryMapper.INSTANCE.geometryToWkt(geometry).getValue();
+        json = GeometryMapper.INSTANCE.geometryToJson(geometry).getValue();
+        wkb = GeometryMapper.INSTANCE.geometryToWkb(geometry);
+        twkb = GeometryMapper.INSTANCE.geometryToTwkb(geometry);
+    }
+
+    @Benchmark
+    public StringWrapper geometryToWkt() {
+        return GeometryMapper.INSTANCE.geometryToWkt(geometry);
+    }
+
+    @Benchmark
+    public GeometryWrapper wktToGeometry() throws ParseException {
+        return GeometryMapper.INSTANCE.wktToGeometry(wkt);
+    }
+
+    @Benchmark
+    public StringWrapper geometryToJson() {
+        return GeometryMapper.INSTANCE.geometryToJson(geometry);
+    }
+
+    @Benchmark
+    public GeometryWrapper jsonToGeometry() throws ParseException, IOException {
+        return GeometryMapper.INSTANCE.jsonToGeometryJson(json);
+    }
+
+    @Benchmark
+    public byte[] geometryToWkb() {
+        return GeometryMapper.INSTANCE.geometryToWkb(geometry);
+    }
+
+    @Benchmark
+    public GeometryWrapper wkbToGeometry() throws ParseException {
+        return GeometryMapper.INSTANCE.wkbToGeometry(wkb);
+    }
+
+    @Benchmark
+    public byte[] geometryToTwkb() {
+        return GeometryMapper.INSTANCE.geometryToTwkb(geometry);
+    }
+
+    @Benchmark
+    public GeometryWrapper twkbToGeometry() throws ParseException {
+        return GeometryMapper.INSTANCE.twkbToGeometry(twkb);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.benchmarks;
+
+import eu.europa.ec.fisheries.uvms.commons.message.impl.JAXBUtils;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JAXBUtilsBenchmark {
+
+    @Param({"10", "500"})
+    public int positions;
+
+    private FluxReport report;
+    private String xml;
+    private byte[] utf8;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        report = FluxReport.create(positions);
+        xml = JAXBUtils.marshallJaxBObjectToString(report, StandardCharsets.UTF_8.name(), false);
+        utf8 = xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String marshallToString() throws JAXBException {
+        return JAXBUtils.marshallJaxBObjectToString(report, StandardCharsets.UTF_8.name(), false);
+    }
+
+    @Benchmark
+    public int marshallToBuffer() throws JAXBException {
+        return JAXBUtils.marshallJaxBObjectToBuffer(report).size();
+    }
+
+    @Benchmark
+    public FluxReport unMarshallString() throws JAXBException {
+        return JAXBUtils.unMarshallMessage(xml, FluxReport.class);
+    }
+
+    @Benchmark
+    public FluxReport unMarshallStream() throws JAXBException {
+        return JAXBUtils.unMarshallMessage(new ByteArrayInputStream(utf8), FluxReport.class);
+    }
+
+    @Benchmark
+    public FluxReport.Header peekHeader() throws JAXBException {
+        return JAXBUtils.peekElement(xml, FluxReport.Header.class, "FLUXReportDocument");
+    }
+}
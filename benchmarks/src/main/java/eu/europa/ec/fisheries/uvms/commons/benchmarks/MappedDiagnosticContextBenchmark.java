@@ -0,0 +1,113 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.benchmarks;
+
+import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
+import eu.europa.ec.fisheries.uvms.commons.message.context.PropagationFormat;
+
+import javax.jms.Message;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+/**
+ * Propagation of an MDC holding a trace context and a dozen other entries, in full, restricted to an allow-list, and
+ * as the compact trace context property.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedDiagnosticContextBenchmark {
+
+    @Param({"FULL", "ALLOW_LIST", "COMPACT"})
+    public String propagation;
+
+    private Message outgoing;
+    private Message incoming;
+
+    @Setup
+    public void setUp() {
+        MDC.clear();
+        MDC.put("traceId", "4bf92f3577b34da6a3ce929d0e0e4736");
+        MDC.put("spanId", "00f067aa0ba902b7");
+        MDC.put("requestId", "b4c6e0f2-1a3d-4e5f-8a9b-0c1d2e3f4a5b");
+        for (int i = 0; i < 12; i++) {
+            MDC.put("entry" + i, "value" + i);
+        }
+        MappedDiagnosticContext.setPropagatedKeys("ALLOW_LIST".equals(propagation) ? new String[]{"traceId", "spanId", "requestId"} : new String[0]);
+        MappedDiagnosticContext.setPropagationFormat("COMPACT".equals(propagation) ? PropagationFormat.COMPACT : PropagationFormat.PROPERTIES);
+
+        incoming = message(new HashMap<>());
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(incoming);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MappedDiagnosticContext.setPropagatedKeys();
+        MappedDiagnosticContext.setPropagationFormat(PropagationFormat.PROPERTIES);
+        MDC.clear();
+    }
+
+    @Benchmark
+    public Message send() {
+        outgoing = message(new HashMap<>());
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(outgoing);
+        return outgoing;
+    }
+
+    @Benchmark
+    public void receive() {
+        MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(incoming);
+    }
+
+    /**
+     * @return a message keeping its properties in the given map, the other methods are not used by the context
+     */
+    private static Message message(Map<String, Object> properties) {
+        return (Message) Proxy.newProxyInstance(MappedDiagnosticContextBenchmark.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setStringProperty":
+                        case "setObjectProperty":
+                            properties.put((String) args[0], args[1]);
+                            return null;
+                        case "getStringProperty":
+                        case "getObjectProperty":
+                            return properties.get(args[0]);
+                        case "propertyExists":
+                            return properties.containsKey(args[0]);
+                        case "getPropertyNames":
+                            return Collections.enumeration(properties.keySet());
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,142 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it 
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of 
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more 
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+ */
+
+package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
+
+import org.geotools.geojson.feature.FeatureJSON;
+import org.geotools.geojson.geom.GeometryJSON;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+import org.locationtech.jts.io.WKTWriter;
+
+/**
+ * Per thread WKT, WKB and GeoJSON readers and writers, none of them is thread safe but all can be reused, so each thread
+ * builds them once instead of once per conversion. The returned instances are shared by all callers on the thread and
+ * must not be reconfigured.
+ */
+public final class GeometryCodecs {
+
+    /**
+     * Number of decimals of the GeoJSON coordinates, see {@link #setJsonDecimals(int)}.
+     */
+    public static final String JSON_DECIMALS_PROPERTY = "uvms.geometry.json.decimals";
+
+    /**
+     * The default of {@link GeometryJSON}.
+     */
+    public static final int DEFAULT_JSON_DECIMALS = 4;
+
+    private static volatile int jsonDecimals = Integer.getInteger(JSON_DECIMALS_PROPERTY, DEFAULT_JSON_DECIMALS);
+
+    private static final ThreadLocal<Codecs> CODECS = ThreadLocal.withInitial(Codecs::new);
+
+    /**
+     * private constructor to avoid class instantiation
+     */
+    private GeometryCodecs() {
+    }
+
+    /**
+     * Changes the number of decimals written by {@link #geometryJson()} and {@link #featureJson()}, the codecs of each
+     * thread are rebuilt on their next use.
+     */
+    public static void setJsonDecimals(int decimals) {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+        }
+        jsonDecimals = decimals;
+    }
+
+    public static int getJsonDecimals() {
+        return jsonDecimals;
+    }
+
+    public static WKTReader wktReader() {
+        Codecs codecs = CODECS.get();
+        if (codecs.wktReader == null) {
+            codecs.wktReader = new WKTReader();
+        }
+        return codecs.wktReader;
+    }
+
+    public static WKTWriter wktWriter() {
+        Codecs codecs = CODECS.get();
+        if (codecs.wktWriter == null) {
+            codecs.wktWriter = new WKTWriter();
+        }
+        return codecs.wktWriter;
+    }
+
+    public static WKBReader wkbReader() {
+        Codecs codecs = CODECS.get();
+        if (codecs.wkbReader == null) {
+            codecs.wkbReader = new WKBReader();
+        }
+        return codecs.wkbReader;
+    }
+
+    /**
+     * @return a writer of two dimensional big endian WKB without SRID, the OGC format
+     */
+    public static WKBWriter wkbWriter() {
+        Codecs codecs = CODECS.get();
+        if (codecs.wkbWriter == null) {
+            codecs.wkbWriter = new WKBWriter();
+        }
+        return codecs.wkbWriter;
+    }
+
+    public static GeometryJSON geometryJson() {
+        Codecs codecs = jsonCodecs();
+        if (codecs.geometryJson == null) {
+            codecs.geometryJson = new GeometryJSON(codecs.decimals);
+        }
+        return codecs.geometryJson;
+    }
+
+    public static FeatureJSON featureJson() {
+        Codecs codecs = jsonCodecs();
+        if (codecs.featureJson == null) {
+            codecs.featureJson = new FeatureJSON(geometryJson());
+        }
+        return codecs.featureJson;
+    }
+
+    /**
+     * Drops the codecs of the current thread, e.g. before returning a pooled thread of an application that is undeployed.
+     */
+    public static void clear() {
+        CODECS.remove();
+    }
+
+    private static Codecs jsonCodecs() {
+        Codecs codecs = CODECS.get();
+        int decimals = jsonDecimals;
+        if (codecs.decimals != decimals) {
+            codecs.geometryJson = null;
+            codecs.featureJson = null;
+            codecs.decimals = decimals;
+        }
+        return codecs;
+    }
+
+    private static final class Codecs {
+
+        private WKTReader wktReader;
+        private WKTWriter wktWriter;
+        private WKBReader wkbReader;
+        private WKBWriter wkbWriter;
+        private GeometryJSON geometryJson;
+        private FeatureJSON featureJson;
+        private int decimals = -1;
+    }
+}
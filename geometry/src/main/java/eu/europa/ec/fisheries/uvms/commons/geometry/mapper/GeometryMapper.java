@@ -12,13 +12,23 @@ details. You should have received a copy of the GNU General Public License along
 
 package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
 
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.geojson.feature.FeatureJSON;
-import org.geotools.geojson.geom.GeometryJSON;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -26,43 +36,145 @@ import org.opengis.feature.simple.SimpleFeature;
 
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
-import org.locationtech.jts.io.WKTReader;
-import org.locationtech.jts.io.WKTWriter;
 
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.FeatureCollectionWrapper;
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.GeometryWrapper;
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.SimpleFeatureWrapper;
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.StringWrapper;
 
-@Mapper(imports = {WKTWriter.class, WKTReader.class, GeometryJSON.class, StringReader.class, FeatureJSON.class})
+/**
+ * Conversions between JTS geometries, GeoTools features and their WKT, WKB, TWKB and GeoJSON representations, the
+ * readers and writers are reused through {@link GeometryCodecs}. The binary formats are also available as Base64 text
+ * for the transports that only carry strings.
+ */
+@Mapper(imports = {GeometryCodecs.class, TinyWkb.class, Base64.class, StringReader.class})
 public abstract class GeometryMapper {
 
     public static GeometryMapper INSTANCE = Mappers.getMapper(GeometryMapper.class);
 
-    @Mapping(target = "value", expression = "java(new WKTWriter().write(geometry))")
+    @Mapping(target = "value", expression = "java(GeometryCodecs.wktWriter().write(geometry))")
     public abstract StringWrapper geometryToWkt(Geometry geometry);
 
-    @Mapping(target = "value", expression = "java(new WKTReader().read(wkt))")
+    @Mapping(target = "value", expression = "java(GeometryCodecs.wktReader().read(wkt))")
     public abstract GeometryWrapper wktToGeometry(String wkt) throws ParseException;
 
-    @Mapping(target = "value", expression = "java(new GeometryJSON().toString(geometry))")
+    @Mapping(target = "value", expression = "java(Base64.getEncoder().encodeToString(GeometryCodecs.wkbWriter().write(geometry)))")
+    public abstract StringWrapper geometryToWkbBase64(Geometry geometry);
+
+    @Mapping(target = "value", expression = "java(GeometryCodecs.wkbReader().read(Base64.getDecoder().decode(wkb)))")
+    public abstract GeometryWrapper wkbBase64ToGeometry(String wkb) throws ParseException;
+
+    @Mapping(target = "value", expression = "java(Base64.getEncoder().encodeToString(TinyWkb.write(geometry)))")
+    public abstract StringWrapper geometryToTwkbBase64(Geometry geometry);
+
+    @Mapping(target = "value", expression = "java(TinyWkb.read(Base64.getDecoder().decode(twkb)))")
+    public abstract GeometryWrapper twkbBase64ToGeometry(String twkb) throws ParseException;
+
+    @Mapping(target = "value", expression = "java(GeometryCodecs.geometryJson().toString(geometry))")
     public abstract StringWrapper geometryToJson(Geometry geometry);
 
-    @Mapping(target = "value", expression = "java(new GeometryJSON().read(new StringReader(json)))")
+    @Mapping(target = "value", expression = "java(GeometryCodecs.geometryJson().read(new StringReader(json)))")
     public abstract GeometryWrapper jsonToGeometryJson(String json) throws ParseException, IOException;
 
-    @Mapping(target = "value", expression = "java(new FeatureJSON().readFeature(new StringReader(feature)))")
+    @Mapping(target = "value", expression = "java(GeometryCodecs.featureJson().readFeature(new StringReader(feature)))")
     public abstract SimpleFeatureWrapper geoJsonFeatureToSimpleFeature(String feature) throws IOException;
 
-    @Mapping(target = "value", expression = "java(new FeatureJSON().readFeatureCollection(new StringReader(fCollection)))")
+    @Mapping(target = "value", expression = "java(GeometryCodecs.featureJson().readFeatureCollection(new StringReader(fCollection)))")
     public abstract FeatureCollectionWrapper geoJsonToFeatureCollection(String fCollection) throws IOException;
 
+    public byte[] geometryToWkb(Geometry geometry) {
+        return geometry == null ? null : GeometryCodecs.wkbWriter().write(geometry);
+    }
+
+    public GeometryWrapper wkbToGeometry(byte[] wkb) throws ParseException {
+        return wkb == null ? null : new GeometryWrapper(GeometryCodecs.wkbReader().read(wkb));
+    }
+
+    /**
+     * @return the geometry in TWKB with {@link TinyWkb#DEFAULT_PRECISION} decimals
+     */
+    public byte[] geometryToTwkb(Geometry geometry) {
+        return geometry == null ? null : TinyWkb.write(geometry);
+    }
+
+    public byte[] geometryToTwkb(Geometry geometry, int precision) {
+        return geometry == null ? null : TinyWkb.write(geometry, precision);
+    }
+
+    public GeometryWrapper twkbToGeometry(byte[] twkb) throws ParseException {
+        return twkb == null ? null : new GeometryWrapper(TinyWkb.read(twkb));
+    }
+
     public void simpleFeatureToGeoJson(SimpleFeature geoJsonFeature, StringWriter writer) throws IOException {
-        new FeatureJSON().writeFeature(geoJsonFeature, writer);
+        GeometryCodecs.featureJson().writeFeature(geoJsonFeature, writer);
     }
 
     public void featureCollectionToGeoJson(FeatureCollection featureCollection, StringWriter writer) throws IOException {
-        new FeatureJSON().writeFeatureCollection(featureCollection, writer);
+        GeometryCodecs.featureJson().writeFeatureCollection(featureCollection, writer);
+    }
+
+    /**
+     * Writes the features of the collection one at a time, unlike {@link #featureCollectionToGeoJson(FeatureCollection,
+     * StringWriter)} the document is never held in memory.
+     */
+    @SuppressWarnings("unchecked")
+    public void featureCollectionToGeoJson(FeatureCollection featureCollection, Writer writer) throws IOException {
+        FeatureIterator<SimpleFeature> features = featureCollection.features();
+        try {
+            featuresToGeoJson(new Iterator<SimpleFeature>() {
+                @Override
+                public boolean hasNext() {
+                    return features.hasNext();
+                }
+
+                @Override
+                public SimpleFeature next() {
+                    return features.next();
+                }
+            }, writer);
+        } finally {
+            features.close();
+        }
+    }
+
+    /**
+     * Writes a GeoJSON FeatureCollection of the features as they are produced by the iterator, so only one feature at
+     * a time is in memory. The writer is flushed but not closed.
+     */
+    public void featuresToGeoJson(Iterator<SimpleFeature> features, Writer writer) throws IOException {
+        FeatureJSON featureJson = GeometryCodecs.featureJson();
+        writer.write("{\"type\":\"FeatureCollection\",\"features\":[");
+        boolean first = true;
+        while (features.hasNext()) {
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write(featureJson.toString(features.next()));
+            first = false;
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    /**
+     * Same as {@link #featuresToGeoJson(Iterator, Writer)} in UTF-8, the stream is flushed but not closed.
+     */
+    public void featuresToGeoJson(Iterator<SimpleFeature> features, OutputStream out) throws IOException {
+        featuresToGeoJson(features, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
     }
 
+    /**
+     * Reads a GeoJSON FeatureCollection lazily, each call to next parses one more feature from the reader. Close the
+     * iterator once done, whether or not all features were read.
+     */
+    public FeatureIterator<SimpleFeature> geoJsonToFeatureIterator(Reader reader) throws IOException {
+        return GeometryCodecs.featureJson().streamFeatureCollection(reader);
+    }
+
+    /**
+     * Same as {@link #geoJsonToFeatureIterator(Reader)} for a UTF-8 stream.
+     */
+    public FeatureIterator<SimpleFeature> geoJsonToFeatureIterator(InputStream in) throws IOException {
+        return geoJsonToFeatureIterator(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
 }
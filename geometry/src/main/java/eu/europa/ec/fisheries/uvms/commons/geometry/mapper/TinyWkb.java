@@ -0,0 +1,364 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it 
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of 
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more 
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+ */
+
+package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
+
+import java.io.ByteArrayOutputStream;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+
+/**
+ * Tiny Well-known Binary (https://github.com/TWKB/Specification) encoding, not available in JTS. Coordinates are
+ * rounded to a number of decimals and written as variable length deltas to the previous coordinate, which makes tracks
+ * and area outlines several times smaller than WKB.
+ * <p>
+ * Geometries are written in two dimensions without bounding box, size or id list. The reader accepts all of them and
+ * reads the Z values, M values are skipped.
+ */
+public final class TinyWkb {
+
+    /**
+     * About a centimetre for coordinates in decimal degrees.
+     */
+    public static final int DEFAULT_PRECISION = 7;
+
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+    private static final int MULTIPOINT = 4;
+    private static final int MULTILINESTRING = 5;
+    private static final int MULTIPOLYGON = 6;
+    private static final int GEOMETRYCOLLECTION = 7;
+
+    private static final int BBOX_FLAG = 0x01;
+    private static final int SIZE_FLAG = 0x02;
+    private static final int ID_LIST_FLAG = 0x04;
+    private static final int EXTENDED_DIMENSIONS_FLAG = 0x08;
+    private static final int EMPTY_FLAG = 0x10;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    /**
+     * private constructor to avoid class instantiation
+     */
+    private TinyWkb() {
+    }
+
+    public static byte[] write(Geometry geometry) {
+        return write(geometry, DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision the number of decimals kept, from -7 to 7
+     */
+    public static byte[] write(Geometry geometry, int precision) {
+        if (precision < -7 || precision > 7) {
+            throw new IllegalArgumentException("TWKB precision must be between -7 and 7: " + precision);
+        }
+        Writer writer = new Writer(precision);
+        writer.writeGeometry(geometry);
+        return writer.out.toByteArray();
+    }
+
+    public static Geometry read(byte[] twkb) throws ParseException {
+        return new Reader(twkb).readGeometry();
+    }
+
+    private static final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int precision;
+        private final double scale;
+        private long lastX;
+        private long lastY;
+
+        private Writer(int precision) {
+            this.precision = precision;
+            this.scale = Math.pow(10, Math.abs(precision));
+        }
+
+        private void writeGeometry(Geometry geometry) {
+            int type = typeOf(geometry);
+            out.write((int) (zigZag(precision) << 4) | type);
+            if (geometry.isEmpty()) {
+                out.write(EMPTY_FLAG);
+                return;
+            }
+            out.write(0);
+            lastX = 0;
+            lastY = 0;
+            switch (type) {
+                case POINT:
+                    writeCoordinate(geometry.getCoordinate());
+                    break;
+                case LINESTRING:
+                    writeCoordinates(geometry.getCoordinates());
+                    break;
+                case POLYGON:
+                    writePolygon((Polygon) geometry);
+                    break;
+                case GEOMETRYCOLLECTION:
+                    writeUnsigned(geometry.getNumGeometries());
+                    for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                        writeGeometry(geometry.getGeometryN(i));
+                    }
+                    break;
+                default:
+                    writeParts(geometry, type);
+            }
+        }
+
+        private void writeParts(Geometry geometry, int type) {
+            writeUnsigned(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry part = geometry.getGeometryN(i);
+                if (part.isEmpty()) {
+                    throw new IllegalArgumentException("TWKB can't hold empty parts in a " + geometry.getGeometryType());
+                }
+                if (type == MULTIPOINT) {
+                    writeCoordinate(part.getCoordinate());
+                } else if (type == MULTILINESTRING) {
+                    writeCoordinates(part.getCoordinates());
+                } else {
+                    writePolygon((Polygon) part);
+                }
+            }
+        }
+
+        private void writePolygon(Polygon polygon) {
+            writeUnsigned(1 + polygon.getNumInteriorRing());
+            writeCoordinates(polygon.getExteriorRing().getCoordinates());
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writeCoordinates(polygon.getInteriorRingN(i).getCoordinates());
+            }
+        }
+
+        private void writeCoordinates(Coordinate[] coordinates) {
+            writeUnsigned(coordinates.length);
+            for (Coordinate coordinate : coordinates) {
+                writeCoordinate(coordinate);
+            }
+        }
+
+        private void writeCoordinate(Coordinate coordinate) {
+            long x = round(coordinate.x);
+            long y = round(coordinate.y);
+            writeUnsigned(zigZag(x - lastX));
+            writeUnsigned(zigZag(y - lastY));
+            lastX = x;
+            lastY = y;
+        }
+
+        private long round(double ordinate) {
+            return Math.round(precision >= 0 ? ordinate * scale : ordinate / scale);
+        }
+
+        private void writeUnsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static int typeOf(Geometry geometry) {
+            if (geometry instanceof Point) {
+                return POINT;
+            } else if (geometry instanceof LineString) {
+                return LINESTRING;
+            } else if (geometry instanceof Polygon) {
+                return POLYGON;
+            } else if (geometry instanceof MultiPoint) {
+                return MULTIPOINT;
+            } else if (geometry instanceof MultiLineString) {
+                return MULTILINESTRING;
+            } else if (geometry instanceof MultiPolygon) {
+                return MULTIPOLYGON;
+            } else if (geometry instanceof GeometryCollection) {
+                return GEOMETRYCOLLECTION;
+            }
+            throw new IllegalArgumentException("Unsupported geometry type " + geometry.getGeometryType());
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] in;
+        private int position;
+        private double scale;
+        private boolean negativePrecision;
+        private double zScale;
+        private int dimensions;
+        private boolean hasZ;
+        private final long[] last = new long[4];
+
+        private Reader(byte[] in) {
+            this.in = in;
+        }
+
+        private Geometry readGeometry() throws ParseException {
+            int header = readByte();
+            int type = header & 0x0F;
+            int precision = (int) unZigZag(header >> 4 & 0x0F);
+            int metadata = readByte();
+
+            scale = Math.pow(10, Math.abs(precision));
+            negativePrecision = precision < 0;
+            hasZ = false;
+            dimensions = 2;
+            if ((metadata & EXTENDED_DIMENSIONS_FLAG) != 0) {
+                int extended = readByte();
+                hasZ = (extended & 0x01) != 0;
+                zScale = Math.pow(10, extended >> 2 & 0x07);
+                dimensions += (hasZ ? 1 : 0) + ((extended & 0x02) != 0 ? 1 : 0);
+            }
+            if ((metadata & SIZE_FLAG) != 0) {
+                readUnsigned();
+            }
+            if ((metadata & BBOX_FLAG) != 0) {
+                for (int i = 0; i < 2 * dimensions; i++) {
+                    readUnsigned();
+                }
+            }
+            boolean empty = (metadata & EMPTY_FLAG) != 0;
+            for (int i = 0; i < last.length; i++) {
+                last[i] = 0;
+            }
+
+            switch (type) {
+                case POINT:
+                    return GEOMETRY_FACTORY.createPoint(empty ? null : readCoordinate());
+                case LINESTRING:
+                    return GEOMETRY_FACTORY.createLineString(empty ? new Coordinate[0] : readCoordinates());
+                case POLYGON:
+                    return empty ? GEOMETRY_FACTORY.createPolygon((LinearRing) null, null) : readPolygon();
+                case MULTIPOINT:
+                    Point[] points = new Point[empty ? 0 : readPartCount(metadata)];
+                    for (int i = 0; i < points.length; i++) {
+                        points[i] = GEOMETRY_FACTORY.createPoint(readCoordinate());
+                    }
+                    return GEOMETRY_FACTORY.createMultiPoint(points);
+                case MULTILINESTRING:
+                    LineString[] lines = new LineString[empty ? 0 : readPartCount(metadata)];
+                    for (int i = 0; i < lines.length; i++) {
+                        lines[i] = GEOMETRY_FACTORY.createLineString(readCoordinates());
+                    }
+                    return GEOMETRY_FACTORY.createMultiLineString(lines);
+                case MULTIPOLYGON:
+                    Polygon[] polygons = new Polygon[empty ? 0 : readPartCount(metadata)];
+                    for (int i = 0; i < polygons.length; i++) {
+                        polygons[i] = readPolygon();
+                    }
+                    return GEOMETRY_FACTORY.createMultiPolygon(polygons);
+                case GEOMETRYCOLLECTION:
+                    Geometry[] geometries = new Geometry[empty ? 0 : readPartCount(metadata)];
+                    for (int i = 0; i < geometries.length; i++) {
+                        geometries[i] = readGeometry();
+                    }
+                    return GEOMETRY_FACTORY.createGeometryCollection(geometries);
+                default:
+                    throw new ParseException("Unknown TWKB geometry type " + type);
+            }
+        }
+
+        private int readPartCount(int metadata) throws ParseException {
+            int count = readCount();
+            if ((metadata & ID_LIST_FLAG) != 0) {
+                for (int i = 0; i < count; i++) {
+                    readUnsigned();
+                }
+            }
+            return count;
+        }
+
+        private Polygon readPolygon() throws ParseException {
+            int ringCount = readCount();
+            if (ringCount == 0) {
+                return GEOMETRY_FACTORY.createPolygon((LinearRing) null, null);
+            }
+            LinearRing shell = GEOMETRY_FACTORY.createLinearRing(readCoordinates());
+            LinearRing[] holes = new LinearRing[ringCount - 1];
+            for (int i = 0; i < holes.length; i++) {
+                holes[i] = GEOMETRY_FACTORY.createLinearRing(readCoordinates());
+            }
+            return GEOMETRY_FACTORY.createPolygon(shell, holes);
+        }
+
+        private Coordinate[] readCoordinates() throws ParseException {
+            Coordinate[] coordinates = new Coordinate[readCount()];
+            for (int i = 0; i < coordinates.length; i++) {
+                coordinates[i] = readCoordinate();
+            }
+            return coordinates;
+        }
+
+        private Coordinate readCoordinate() throws ParseException {
+            for (int i = 0; i < dimensions; i++) {
+                last[i] += unZigZag(readUnsigned());
+            }
+            Coordinate coordinate = new Coordinate(scale(last[0]), scale(last[1]));
+            if (hasZ) {
+                coordinate.z = last[2] / zScale;
+            }
+            return coordinate;
+        }
+
+        private double scale(long value) {
+            return negativePrecision ? value * scale : value / scale;
+        }
+
+        private int readCount() throws ParseException {
+            long count = readUnsigned();
+            if (count > in.length - position) {
+                throw new ParseException("Invalid TWKB count " + count + " at byte " + position);
+            }
+            return (int) count;
+        }
+
+        private long readUnsigned() throws ParseException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new ParseException("Malformed TWKB varint at byte " + position);
+        }
+
+        private int readByte() throws ParseException {
+            if (position >= in.length) {
+                throw new ParseException("Unexpected end of TWKB after " + in.length + " bytes");
+            }
+            return in[position++] & 0xFF;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
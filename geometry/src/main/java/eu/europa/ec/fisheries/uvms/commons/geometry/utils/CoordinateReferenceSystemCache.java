@@ -0,0 +1,158 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it 
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of 
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more 
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+ */
+
+package eu.europa.ec.fisheries.uvms.commons.geometry.utils;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the decoded {@link CoordinateReferenceSystem}s and the {@link MathTransform}s to WGS84 by EPSG code, both are
+ * immutable and thread safe so decoding and searching the transformation path is done once per code instead of once
+ * per geometry.
+ */
+public final class CoordinateReferenceSystemCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoordinateReferenceSystemCache.class);
+
+    private static final String EPSG = "EPSG:";
+
+    /**
+     * Comma separated EPSG codes loaded by {@link #warmUp()}, e.g. {@code 3035,32629}.
+     */
+    public static final String WARM_UP_SRIDS_PROPERTY = "uvms.geometry.crs.warmup";
+
+    private static final ConcurrentMap<Integer, CoordinateReferenceSystem> LONGITUDE_FIRST = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, CoordinateReferenceSystem> AUTHORITY_AXIS_ORDER = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, MathTransform> TO_WGS84 = new ConcurrentHashMap<>();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    /**
+     * private constructor to avoid class instantiation
+     */
+    private CoordinateReferenceSystemCache() {
+    }
+
+    /**
+     * @param srid the EPSG code
+     * @param longitudeFirst true to force the (longitude, latitude) axis order, see {@link CRS#decode(String, boolean)}
+     */
+    public static CoordinateReferenceSystem getCoordinateReferenceSystem(int srid, boolean longitudeFirst) throws FactoryException {
+        ConcurrentMap<Integer, CoordinateReferenceSystem> cache = longitudeFirst ? LONGITUDE_FIRST : AUTHORITY_AXIS_ORDER;
+        CoordinateReferenceSystem crs = cache.get(srid);
+        if (crs != null) {
+            HITS.increment();
+            return crs;
+        }
+        MISSES.increment();
+        return decode(cache, srid, longitudeFirst);
+    }
+
+    /**
+     * @return the lenient transform from the longitude first system of the EPSG code to
+     * {@link DefaultGeographicCRS#WGS84}, the same one {@link org.geotools.geometry.jts.JTS#toGeographic} looks up
+     */
+    public static MathTransform getTransformToWgs84(int srid) throws FactoryException {
+        MathTransform transform = TO_WGS84.get(srid);
+        if (transform != null) {
+            HITS.increment();
+            return transform;
+        }
+        MISSES.increment();
+        CoordinateReferenceSystem crs = LONGITUDE_FIRST.get(srid);
+        if (crs == null) {
+            crs = decode(LONGITUDE_FIRST, srid, true);
+        }
+        transform = CRS.findMathTransform(crs, DefaultGeographicCRS.WGS84, true);
+        MathTransform previous = TO_WGS84.putIfAbsent(srid, transform);
+        return previous != null ? previous : transform;
+    }
+
+    /*
+     * Decodes and caches the system without counting, so a lookup is counted once even when it decodes the system.
+     */
+    private static CoordinateReferenceSystem decode(ConcurrentMap<Integer, CoordinateReferenceSystem> cache, int srid,
+                                                    boolean longitudeFirst) throws FactoryException {
+        CoordinateReferenceSystem crs = CRS.decode(EPSG + srid, longitudeFirst);
+        CoordinateReferenceSystem previous = cache.putIfAbsent(srid, crs);
+        return previous != null ? previous : crs;
+    }
+
+    /**
+     * Loads the EPSG codes of the {@value #WARM_UP_SRIDS_PROPERTY} system property, call it at startup so the first
+     * positions are not slowed down by the EPSG database lookups. Entries that are not numbers are logged and skipped.
+     */
+    public static void warmUp() {
+        String srids = System.getProperty(WARM_UP_SRIDS_PROPERTY, "");
+        for (String srid : srids.split(",")) {
+            if (srid.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                warmUp(Integer.parseInt(srid.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warn("Skipping invalid EPSG code '" + srid.trim() + "' of " + WARM_UP_SRIDS_PROPERTY);
+            }
+        }
+    }
+
+    /**
+     * Loads the systems and the transforms to WGS84 of the given EPSG codes, codes that can't be decoded are logged
+     * and skipped.
+     */
+    public static void warmUp(int... srids) {
+        for (int srid : srids) {
+            try {
+                getCoordinateReferenceSystem(srid, false);
+                getTransformToWgs84(srid);
+            } catch (FactoryException e) {
+                LOG.warn("Unable to warm up coordinate reference system " + EPSG + srid + ". Reason: " + e.getMessage());
+            }
+        }
+    }
+
+    public static long getHitCount() {
+        return HITS.sum();
+    }
+
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return the number of cached systems and transforms
+     */
+    public static int size() {
+        return LONGITUDE_FIRST.size() + AUTHORITY_AXIS_ORDER.size() + TO_WGS84.size();
+    }
+
+    /**
+     * Empties the cache and resets the counters.
+     */
+    public static void clear() {
+        LONGITUDE_FIRST.clear();
+        AUTHORITY_AXIS_ORDER.clear();
+        TO_WGS84.clear();
+        HITS.reset();
+        MISSES.reset();
+    }
+}
@@ -12,6 +12,7 @@ details. You should have received a copy of the GNU General Public License along
 
 package eu.europa.ec.fisheries.uvms.commons.geometry.utils;
 
+import eu.europa.ec.fisheries.uvms.commons.geometry.mapper.GeometryCodecs;
 import eu.europa.ec.fisheries.uvms.commons.geometry.mapper.GeometryMapper;
 import org.apache.commons.collections.CollectionUtils;
 import org.geotools.geometry.jts.JTS;
@@ -20,12 +21,14 @@ import org.geotools.measure.Latitude;
 import org.geotools.measure.Longitude;
 import org.geotools.metadata.i18n.ErrorKeys;
 import org.geotools.metadata.i18n.Errors;
-import org.geotools.referencing.CRS;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
 import org.locationtech.jts.linearref.LengthIndexedLine;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +39,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static java.lang.Math.toRadians;
 
@@ -43,8 +48,6 @@ public final class GeometryUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(GeometryUtils.class);
 
-    private static final String EPSG = "EPSG:";
-
     public static final int DEFAULT_EPSG_SRID = 4326;
     public static GeometryFactory geometryFactory = new GeometryFactory();
 
@@ -68,8 +71,11 @@ public final class GeometryUtils {
      */
     public static Geometry toGeographic(Geometry geom, Integer crs) {
         try {
-            CoordinateReferenceSystem decode = CRS.decode(EPSG + Integer.toString(crs), true);
-            return JTS.toGeographic(geom, decode);
+            MathTransform transform = CoordinateReferenceSystemCache.getTransformToWgs84(requireSrid(crs));
+            if (transform.isIdentity()) {
+                return geom;
+            }
+            return JTS.transform(geom, transform);
         } catch (TransformException  | FactoryException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -101,6 +107,77 @@ public final class GeometryUtils {
         return point;
     }
 
+    /**
+     * Reprojects interleaved coordinates in place to WGS84 and checks the resulting latitudes and longitudes, without
+     * creating a geometry per position. The transform of the crs is looked up once in the
+     * {@link CoordinateReferenceSystemCache}. When a position can not be reprojected or is out of range the exception
+     * leaves the array partly reprojected, pass a copy if the original coordinates must survive a failure.
+     *
+     * @param coordinates x0, y0, x1, y1, ... in the crs, overwritten with the longitudes and latitudes in
+     *            <strong>decimal degrees</strong>
+     * @param crs
+     *            The CRS the coordinates are currently in.
+     * @param parallel true to split large arrays across the common fork/join pool
+     * @throws IllegalArgumentException if the array has an odd length or a position is out of range
+     */
+    public static void toGeographic(double[] coordinates, int crs, boolean parallel) {
+        if (coordinates.length % 2 != 0) {
+            throw new IllegalArgumentException("Odd number of interleaved coordinates: " + coordinates.length);
+        }
+        reproject(new BulkReprojection(bulkTransformToWgs84(crs), coordinates, null, 0, coordinates.length / 2, parallel));
+    }
+
+    public static void toGeographic(double[] coordinates, int crs) {
+        toGeographic(coordinates, crs, false);
+    }
+
+    /**
+     * Same as {@link #toGeographic(double[], int, boolean)} for positions held in two arrays, both are overwritten and
+     * may likewise be left partly reprojected by an exception.
+     *
+     * @param xs the x values, the longitudes after reprojection
+     * @param ys the y values, the latitudes after reprojection
+     */
+    public static void toGeographic(double[] xs, double[] ys, int crs, boolean parallel) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Got " + xs.length + " x values but " + ys.length + " y values");
+        }
+        reproject(new BulkReprojection(bulkTransformToWgs84(crs), xs, ys, 0, xs.length, parallel));
+    }
+
+    public static void toGeographic(double[] xs, double[] ys, int crs) {
+        toGeographic(xs, ys, crs, false);
+    }
+
+    /*
+     * Returns null when the coordinates are already in WGS84 and only need to be checked.
+     */
+    private static MathTransform bulkTransformToWgs84(int crs) {
+        if (isDefaultEpsgSRID(crs)) {
+            return null;
+        }
+        try {
+            MathTransform transform = CoordinateReferenceSystemCache.getTransformToWgs84(crs);
+            if (transform.isIdentity()) {
+                return null;
+            }
+            if (transform.getSourceDimensions() != 2 || transform.getTargetDimensions() != 2) {
+                throw new IllegalArgumentException("EPSG:" + crs + " is not a two dimensional coordinate reference system");
+            }
+            return transform;
+        } catch (FactoryException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static void reproject(BulkReprojection reprojection) {
+        if (reprojection.parallel && reprojection.to - reprojection.from > BulkReprojection.SPLIT_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(reprojection);
+        } else {
+            reprojection.compute();
+        }
+    }
+
     /**
      * Returns the centroid of a given geometry as WKT
      *
@@ -234,8 +311,9 @@ public final class GeometryUtils {
         LineString line;
 
         try {
-            Geometry point1 = GeometryMapper.INSTANCE.wktToGeometry(wkt1).getValue();
-            Geometry point2 = GeometryMapper.INSTANCE.wktToGeometry(wkt2).getValue();
+            WKTReader wktReader = GeometryCodecs.wktReader();
+            Geometry point1 = wktReader.read(wkt1);
+            Geometry point2 = wktReader.read(wkt2);
             GeometryFactory geometryFactory = new GeometryFactory();
             List<Coordinate> coordinates = new ArrayList<>();
             coordinates.add(point1.getCoordinate());
@@ -252,7 +330,7 @@ public final class GeometryUtils {
 
     public static CoordinateReferenceSystem toDefaultCoordinateReferenceSystem() {
         try {
-            return CRS.decode(EPSG + DEFAULT_EPSG_SRID);
+            return CoordinateReferenceSystemCache.getCoordinateReferenceSystem(DEFAULT_EPSG_SRID, false);
         } catch (FactoryException e) {
             LOG.error(e.getMessage(), e);
             throw new RuntimeException(e.getMessage(), e);
@@ -261,10 +339,98 @@ public final class GeometryUtils {
 
     public static CoordinateReferenceSystem toCoordinateReferenceSystem(Integer srid) {
         try {
-            return CRS.decode(EPSG + srid);
+            return CoordinateReferenceSystemCache.getCoordinateReferenceSystem(requireSrid(srid), false);
         } catch (FactoryException e) {
             LOG.error(e.getMessage(), e);
             throw new RuntimeException(e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Fails like an unknown EPSG code, as CRS.decode("EPSG:null") did before the CRS were cached by their int code.
+     */
+    private static int requireSrid(Integer srid) throws NoSuchAuthorityCodeException {
+        if (srid == null) {
+            throw new NoSuchAuthorityCodeException("No SRID given", "EPSG", "null");
+        }
+        return srid;
+    }
+
+    /**
+     * Reprojects and checks the positions [from, to) of the arrays, splitting in halves down to
+     * {@link #SPLIT_THRESHOLD} positions when run in parallel. Positions held in two arrays are copied chunk by chunk
+     * into a small interleaved buffer since {@link MathTransform} only works on interleaved coordinates.
+     */
+    private static final class BulkReprojection extends RecursiveAction {
+
+        private static final int SPLIT_THRESHOLD = 8192;
+        private static final int CHUNK = 1024;
+
+        private final MathTransform transform;
+        private final double[] xs;
+        private final double[] ys;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        private BulkReprojection(MathTransform transform, double[] xs, double[] ys, int from, int to, boolean parallel) {
+            this.transform = transform;
+            this.xs = xs;
+            this.ys = ys;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (parallel && to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BulkReprojection(transform, xs, ys, from, middle, true),
+                        new BulkReprojection(transform, xs, ys, middle, to, true));
+                return;
+            }
+            try {
+                if (ys == null) {
+                    reprojectInterleaved();
+                } else {
+                    reprojectSeparate();
+                }
+            } catch (TransformException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        private void reprojectInterleaved() throws TransformException {
+            if (transform != null) {
+                transform.transform(xs, 2 * from, xs, 2 * from, to - from);
+            }
+            for (int i = 2 * from; i < 2 * to; i += 2) {
+                checkLongitude(xs[i]);
+                checkLatitude(xs[i + 1]);
+            }
+        }
+
+        private void reprojectSeparate() throws TransformException {
+            double[] buffer = transform == null ? null : new double[2 * Math.min(CHUNK, to - from)];
+            for (int start = from; start < to; start += CHUNK) {
+                int end = Math.min(start + CHUNK, to);
+                if (transform != null) {
+                    for (int i = start, j = 0; i < end; i++) {
+                        buffer[j++] = xs[i];
+                        buffer[j++] = ys[i];
+                    }
+                    transform.transform(buffer, 0, buffer, 0, end - start);
+                    for (int i = start, j = 0; i < end; i++) {
+                        xs[i] = buffer[j++];
+                        ys[i] = buffer[j++];
+                    }
+                }
+                for (int i = start; i < end; i++) {
+                    checkLongitude(xs[i]);
+                    checkLatitude(ys[i]);
+                }
+            }
+        }
+    }
+}
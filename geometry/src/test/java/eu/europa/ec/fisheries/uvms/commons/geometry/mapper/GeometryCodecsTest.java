@@ -0,0 +1,64 @@
+package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.WKTReader;
+
+public class GeometryCodecsTest {
+
+    @After
+    public void resetDecimals() {
+        GeometryCodecs.setJsonDecimals(GeometryCodecs.DEFAULT_JSON_DECIMALS);
+        GeometryCodecs.clear();
+    }
+
+    @Test
+    public void testCodecsAreReusedOnTheSameThread() {
+        assertSame(GeometryCodecs.wktReader(), GeometryCodecs.wktReader());
+        assertSame(GeometryCodecs.wktWriter(), GeometryCodecs.wktWriter());
+        assertSame(GeometryCodecs.geometryJson(), GeometryCodecs.geometryJson());
+        assertSame(GeometryCodecs.featureJson(), GeometryCodecs.featureJson());
+    }
+
+    @Test
+    public void testCodecsAreNotSharedBetweenThreads() throws Exception {
+        WKTReader reader = GeometryCodecs.wktReader();
+
+        WKTReader otherThreadReader = CompletableFuture.supplyAsync(GeometryCodecs::wktReader).get();
+
+        assertNotSame(reader, otherThreadReader);
+    }
+
+    @Test
+    public void testJsonDecimalsChangeRebuildsCodecs() {
+        Point point = new GeometryFactory().createPoint(new Coordinate(100.123456, 0.1));
+        assertEquals("{\"type\":\"Point\",\"coordinates\":[100.1235,0.1]}", GeometryMapper.INSTANCE.geometryToJson(point).getValue());
+
+        GeometryCodecs.setJsonDecimals(2);
+
+        assertEquals("{\"type\":\"Point\",\"coordinates\":[100.12,0.1]}", GeometryMapper.INSTANCE.geometryToJson(point).getValue());
+    }
+
+    @Test
+    public void testClearDropsTheCodecsOfTheThread() {
+        WKTReader reader = GeometryCodecs.wktReader();
+
+        GeometryCodecs.clear();
+
+        assertNotSame(reader, GeometryCodecs.wktReader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeJsonDecimalsAreRejected() {
+        GeometryCodecs.setJsonDecimals(-1);
+    }
+}
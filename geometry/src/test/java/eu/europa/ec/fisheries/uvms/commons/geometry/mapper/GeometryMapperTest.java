@@ -3,10 +3,19 @@ package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
 import static java.util.Arrays.asList;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
@@ -14,13 +23,16 @@ import org.junit.Test;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.FeatureCollectionWrapper;
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.GeometryWrapper;
 import eu.europa.ec.fisheries.uvms.commons.geometry.model.SimpleFeatureWrapper;
+import eu.europa.ec.fisheries.uvms.commons.geometry.model.StringWrapper;
 
 public class GeometryMapperTest {
 
@@ -154,4 +166,153 @@ public class GeometryMapperTest {
         assertTrue(sw.toString().contains("{\"type\":\"Feature\",\"properties\":{\"arrayType\":\"[R, FDG]\"},"));
 
     }
+
+    @Test
+    public void testWkbRoundTrip() throws Exception{
+
+        Polygon polygon = area(100);
+
+        byte[] wkb = GeometryMapper.INSTANCE.geometryToWkb(polygon);
+        StringWrapper base64 = GeometryMapper.INSTANCE.geometryToWkbBase64(polygon);
+
+        assertTrue(polygon.equalsExact(GeometryMapper.INSTANCE.wkbToGeometry(wkb).getValue()));
+        assertTrue(polygon.equalsExact(GeometryMapper.INSTANCE.wkbBase64ToGeometry(base64.getValue()).getValue()));
+    }
+
+    @Test
+    public void testTwkbRoundTrip() throws Exception{
+
+        Polygon polygon = area(100);
+
+        byte[] twkb = GeometryMapper.INSTANCE.geometryToTwkb(polygon);
+        StringWrapper base64 = GeometryMapper.INSTANCE.geometryToTwkbBase64(polygon);
+
+        assertTrue(polygon.equalsExact(GeometryMapper.INSTANCE.twkbToGeometry(twkb).getValue(), 0.0000001));
+        assertTrue(polygon.equalsExact(GeometryMapper.INSTANCE.twkbBase64ToGeometry(base64.getValue()).getValue(), 0.0000001));
+    }
+
+    @Test
+    public void testBinaryEncodingsAreSmallerThanWkt() {
+
+        Polygon polygon = area(5000);
+
+        int wkt = GeometryMapper.INSTANCE.geometryToWkt(polygon).getValue().length();
+        int wkb = GeometryMapper.INSTANCE.geometryToWkb(polygon).length;
+        int twkb = GeometryMapper.INSTANCE.geometryToTwkb(polygon).length;
+
+        assertTrue("WKT " + wkt + " bytes, WKB " + wkb + " bytes", wkb < wkt);
+        assertTrue("WKB " + wkb + " bytes, TWKB " + twkb + " bytes", twkb * 2 < wkb);
+    }
+
+    @Test
+    public void testBinaryEncodingsOfNull() throws Exception{
+
+        assertNull(GeometryMapper.INSTANCE.geometryToWkb(null));
+        assertNull(GeometryMapper.INSTANCE.wkbToGeometry(null));
+        assertNull(GeometryMapper.INSTANCE.geometryToTwkb(null));
+        assertNull(GeometryMapper.INSTANCE.twkbToGeometry(null));
+    }
+
+    /*
+     * A closed outline of the given number of vertices with the irregular coordinates of a digitized area.
+     */
+    private static Polygon area(int vertices) {
+        Coordinate[] coordinates = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double radius = 2 + 0.1 * Math.sin(7 * angle);
+            coordinates[i] = new Coordinate(-20.123456789 + radius * Math.cos(angle), 45.987654321 + radius * Math.sin(angle));
+        }
+        coordinates[vertices] = coordinates[0];
+        return new GeometryFactory().createPolygon(coordinates);
+    }
+
+    @Test
+    public void testStreamedGeoJsonIsReadByTheFeatureCollectionMapping() throws Exception{
+
+        StringWriter writer = new StringWriter();
+        GeometryMapper.INSTANCE.featuresToGeoJson(track(3), writer);
+
+        FeatureCollectionWrapper wrapper = GeometryMapper.INSTANCE.geoJsonToFeatureCollection(writer.toString());
+
+        assertEquals(3, wrapper.getValue().size());
+        assertEquals(11.2, wrapper.getValue().getBounds().getMinX(), 0.0001);
+        assertEquals(11.202, wrapper.getValue().getBounds().getMaxX(), 0.0001);
+    }
+
+    @Test
+    public void testStreamedGeoJsonRoundTrip() throws Exception{
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeometryMapper.INSTANCE.featuresToGeoJson(track(1000), out);
+
+        int count = 0;
+        try (FeatureIterator<SimpleFeature> features = GeometryMapper.INSTANCE.geoJsonToFeatureIterator(new ByteArrayInputStream(out.toByteArray()))) {
+            while (features.hasNext()) {
+                SimpleFeature feature = features.next();
+                assertEquals("S\u00f8ren " + count, feature.getAttribute("name"));
+                assertEquals(11.2 + count * 0.001, ((Point) feature.getDefaultGeometry()).getX(), 0.0001);
+                count++;
+            }
+        }
+        assertEquals(1000, count);
+    }
+
+    @Test
+    public void testStreamedEmptyGeoJson() throws Exception{
+
+        StringWriter writer = new StringWriter();
+        GeometryMapper.INSTANCE.featuresToGeoJson(track(0), writer);
+
+        assertEquals("{\"type\":\"FeatureCollection\",\"features\":[]}", writer.toString());
+        try (FeatureIterator<SimpleFeature> features = GeometryMapper.INSTANCE.geoJsonToFeatureIterator(new StringReader(writer.toString()))) {
+            assertFalse(features.hasNext());
+        }
+    }
+
+    @Test
+    public void testFeatureCollectionToGeoJsonWriter() throws Exception{
+
+        FeatureCollectionWrapper collection = GeometryMapper.INSTANCE.geoJsonToFeatureCollection("{\"type\":\"FeatureCollection\",\"features\":[" +
+                "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[102.0,0.5]},\"properties\":{\"prop0\":\"value0\"}}]}");
+
+        Writer writer = new StringWriter();
+        GeometryMapper.INSTANCE.featureCollectionToGeoJson(collection.getValue(), writer);
+
+        FeatureCollectionWrapper read = GeometryMapper.INSTANCE.geoJsonToFeatureCollection(writer.toString());
+        assertEquals(1, read.getValue().size());
+        assertEquals(102.0, read.getValue().getBounds().getMinX(), 0.0001);
+    }
+
+    /*
+     * Builds the features of the track on demand, as a database cursor would.
+     */
+    private static Iterator<SimpleFeature> track(int positions) {
+        SimpleFeatureTypeBuilder sb = new SimpleFeatureTypeBuilder();
+        sb.setCRS(DefaultGeographicCRS.WGS84);
+        sb.setName("track");
+        sb.add("geometry", Point.class);
+        sb.add("name", String.class);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(sb.buildFeatureType());
+        GeometryFactory factory = new GeometryFactory();
+
+        return new Iterator<SimpleFeature>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < positions;
+            }
+
+            @Override
+            public SimpleFeature next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                builder.set("geometry", factory.createPoint(new Coordinate(11.2 + next * 0.001, 57.5)));
+                builder.set("name", "S\u00f8ren " + next);
+                return builder.buildFeature("track." + next++);
+            }
+        };
+    }
 }
@@ -0,0 +1,131 @@
+package eu.europa.ec.fisheries.uvms.commons.geometry.mapper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+
+public class TinyWkbTest {
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void testPointMatchesSpecification() throws Exception {
+        Point point = factory.createPoint(new Coordinate(1, 2));
+
+        byte[] twkb = TinyWkb.write(point, 0);
+
+        assertArrayEquals(new byte[]{0x01, 0x00, 0x02, 0x04}, twkb);
+        assertTrue(point.equalsExact(TinyWkb.read(twkb)));
+    }
+
+    @Test
+    public void testLineStringIsDeltaEncoded() throws Exception {
+        LineString line = factory.createLineString(new Coordinate[]{new Coordinate(1, 1), new Coordinate(5, 5)});
+
+        byte[] twkb = TinyWkb.write(line, 0);
+
+        assertArrayEquals(new byte[]{0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08}, twkb);
+        assertTrue(line.equalsExact(TinyWkb.read(twkb)));
+    }
+
+    @Test
+    public void testPolygonWithHoleRoundTrip() throws Exception {
+        Polygon polygon = polygonWithHole(0);
+
+        Geometry read = TinyWkb.read(TinyWkb.write(polygon));
+
+        assertTrue(polygon.equalsExact(read, 0.0000001));
+    }
+
+    @Test
+    public void testMultiGeometriesAndCollectionsRoundTrip() throws Exception {
+        Geometry multiPoint = factory.createMultiPoint(new Point[]{
+                factory.createPoint(new Coordinate(-7.123456789, 51.987654321)),
+                factory.createPoint(new Coordinate(-7.2, 52.1))});
+        Geometry multiPolygon = factory.createMultiPolygon(new Polygon[]{polygonWithHole(0), polygonWithHole(20)});
+        Geometry collection = factory.createGeometryCollection(new Geometry[]{
+                multiPoint, factory.createLineString(new Coordinate[]{new Coordinate(179.9, -89.9), new Coordinate(-179.9, 89.9)})});
+
+        for (Geometry geometry : Arrays.asList(multiPoint, multiPolygon, collection)) {
+            Geometry read = TinyWkb.read(TinyWkb.write(geometry));
+            assertEquals(geometry.getGeometryType(), read.getGeometryType());
+            assertTrue(geometry.toText(), geometry.equalsExact(read, 0.0000001));
+        }
+    }
+
+    @Test
+    public void testPrecisionRoundsCoordinates() throws Exception {
+        Point point = factory.createPoint(new Coordinate(1234.5678, -5678.1234));
+
+        Point twoDecimals = (Point) TinyWkb.read(TinyWkb.write(point, 2));
+        Point hundreds = (Point) TinyWkb.read(TinyWkb.write(point, -2));
+
+        assertEquals(1234.57, twoDecimals.getX(), 0.0000001);
+        assertEquals(-5678.12, twoDecimals.getY(), 0.0000001);
+        assertEquals(1200, hundreds.getX(), 0.0);
+        assertEquals(-5700, hundreds.getY(), 0.0);
+    }
+
+    @Test
+    public void testEmptyGeometriesRoundTrip() throws Exception {
+        Geometry emptyPoint = factory.createPoint((Coordinate) null);
+        Geometry emptyLine = factory.createLineString(new Coordinate[0]);
+
+        assertArrayEquals(new byte[]{(byte) 0xE1, 0x10}, TinyWkb.write(emptyPoint));
+        assertTrue(TinyWkb.read(TinyWkb.write(emptyPoint)).isEmpty());
+        assertTrue(TinyWkb.read(TinyWkb.write(emptyLine)) instanceof LineString);
+        assertTrue(TinyWkb.read(TinyWkb.write(emptyLine)).isEmpty());
+    }
+
+    @Test
+    public void testTrackTakesFourBytesPerPosition() {
+        Coordinate[] track = new Coordinate[1000];
+        for (int i = 0; i < track.length; i++) {
+            track[i] = new Coordinate(11.2 + i * 0.0013, 57.5 + i * 0.0007);
+        }
+
+        byte[] twkb = TinyWkb.write(factory.createLineString(track), 5);
+
+        // headers, point count and first position, then deltas of about 130 and 70 that take 2 bytes each
+        assertEquals(2 + 2 + 8 + 4 * (track.length - 1), twkb.length);
+    }
+
+    @Test
+    public void testTruncatedInputIsRejected() {
+        byte[] twkb = TinyWkb.write(polygonWithHole(0));
+        try {
+            TinyWkb.read(Arrays.copyOf(twkb, twkb.length - 3));
+            fail("Expected a ParseException");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionOutOfRangeIsRejected() {
+        TinyWkb.write(factory.createPoint(new Coordinate(1, 2)), 8);
+    }
+
+    private Polygon polygonWithHole(double offset) {
+        LinearRing shell = factory.createLinearRing(new Coordinate[]{
+                new Coordinate(offset, 0), new Coordinate(offset + 10.123456789, 0), new Coordinate(offset + 10.123456789, 10),
+                new Coordinate(offset, 10), new Coordinate(offset, 0)});
+        LinearRing hole = factory.createLinearRing(new Coordinate[]{
+                new Coordinate(offset + 2, 2), new Coordinate(offset + 2, 3), new Coordinate(offset + 3, 3),
+                new Coordinate(offset + 2, 2)});
+        return factory.createPolygon(shell, new LinearRing[]{hole});
+    }
+}
@@ -0,0 +1,83 @@
+package eu.europa.ec.fisheries.uvms.commons.geometry.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.opengis.referencing.operation.MathTransform;
+
+public class CoordinateReferenceSystemCacheTest {
+
+    private static final int UTM_31N = 32631;
+
+    @Before
+    public void clearCache() {
+        CoordinateReferenceSystemCache.clear();
+    }
+
+    @Test
+    public void testTransformIsDecodedOnce() throws Exception {
+        MathTransform first = CoordinateReferenceSystemCache.getTransformToWgs84(UTM_31N);
+        MathTransform second = CoordinateReferenceSystemCache.getTransformToWgs84(UTM_31N);
+
+        assertSame(first, second);
+        assertEquals(1, CoordinateReferenceSystemCache.getMissCount());
+        assertEquals(1, CoordinateReferenceSystemCache.getHitCount());
+    }
+
+    @Test
+    public void testToGeographicUsesCachedTransform() {
+        Point utm = GeometryUtils.geometryFactory.createPoint(new Coordinate(500000, 0));
+
+        Point first = (Point) GeometryUtils.toGeographic(utm, UTM_31N);
+        Point second = (Point) GeometryUtils.toGeographic(utm, UTM_31N);
+
+        assertEquals(3.0, first.getX(), 0.000001);
+        assertEquals(0.0, first.getY(), 0.000001);
+        assertEquals(first.getCoordinate(), second.getCoordinate());
+        assertEquals(1, CoordinateReferenceSystemCache.getHitCount());
+    }
+
+    @Test
+    public void testToGeographicKeepsWgs84Coordinates() {
+        Geometry point = GeometryUtils.geometryFactory.createPoint(new Coordinate(11.2, 57.5));
+
+        assertEquals(point.getCoordinate(), GeometryUtils.toGeographic(point, GeometryUtils.DEFAULT_EPSG_SRID).getCoordinate());
+    }
+
+    @Test
+    public void testWarmUpSkipsUnknownCodes() {
+        CoordinateReferenceSystemCache.warmUp(UTM_31N, -1);
+
+        assertEquals(3, CoordinateReferenceSystemCache.size());
+        assertEquals(0, CoordinateReferenceSystemCache.getHitCount());
+    }
+
+    @Test
+    public void testWarmUpFromSystemProperty() {
+        System.setProperty(CoordinateReferenceSystemCache.WARM_UP_SRIDS_PROPERTY, " 4326, 32631 ");
+        try {
+            CoordinateReferenceSystemCache.warmUp();
+        } finally {
+            System.clearProperty(CoordinateReferenceSystemCache.WARM_UP_SRIDS_PROPERTY);
+        }
+
+        assertEquals(6, CoordinateReferenceSystemCache.size());
+    }
+
+    @Test
+    public void testWarmUpSkipsInvalidEntriesOfSystemProperty() {
+        System.setProperty(CoordinateReferenceSystemCache.WARM_UP_SRIDS_PROPERTY, "EPSG:3035,32631");
+        try {
+            CoordinateReferenceSystemCache.warmUp();
+        } finally {
+            System.clearProperty(CoordinateReferenceSystemCache.WARM_UP_SRIDS_PROPERTY);
+        }
+
+        assertEquals(3, CoordinateReferenceSystemCache.size());
+    }
+}
@@ -0,0 +1,146 @@
+package eu.europa.ec.fisheries.uvms.commons.geometry.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Point;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+
+public class GeometryUtilsTest {
+
+    private static final int UTM_31N = 32631;
+
+    @Test
+    public void testBulkToGeographicMatchesSinglePosition() {
+        double[] coordinates = {500000, 0, 450000, 5500000, 600000, 6000000};
+
+        double[] expected = new double[coordinates.length];
+        for (int i = 0; i < coordinates.length; i += 2) {
+            Point point = (Point) GeometryUtils.toGeographic(coordinates[i + 1], coordinates[i], UTM_31N);
+            expected[i] = point.getX();
+            expected[i + 1] = point.getY();
+        }
+
+        GeometryUtils.toGeographic(coordinates, UTM_31N);
+
+        assertArrayEquals(expected, coordinates, 0.0000001);
+        assertEquals(3.0, coordinates[0], 0.000001);
+    }
+
+    @Test
+    public void testBulkToGeographicWithSeparateArrays() {
+        double[] xs = new double[3000];
+        double[] ys = new double[3000];
+        double[] interleaved = new double[2 * xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = interleaved[2 * i] = 400000 + i * 10;
+            ys[i] = interleaved[2 * i + 1] = 5000000 + i * 20;
+        }
+
+        GeometryUtils.toGeographic(xs, ys, UTM_31N);
+        GeometryUtils.toGeographic(interleaved, UTM_31N);
+
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(interleaved[2 * i], xs[i], 0.0);
+            assertEquals(interleaved[2 * i + 1], ys[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testParallelBulkToGeographicMatchesSequential() {
+        double[] sequential = new double[2 * 50000];
+        for (int i = 0; i < sequential.length; i += 2) {
+            sequential[i] = 300000 + (i % 4000) * 100;
+            sequential[i + 1] = 4000000 + i * 10;
+        }
+        double[] parallel = sequential.clone();
+
+        GeometryUtils.toGeographic(sequential, UTM_31N, false);
+        GeometryUtils.toGeographic(parallel, UTM_31N, true);
+
+        assertArrayEquals(sequential, parallel, 0.0);
+    }
+
+    @Test
+    public void testBulkToGeographicKeepsWgs84Positions() {
+        double[] coordinates = {11.2, 57.5, -179.9, -89.9};
+        double[] xs = {11.2, -179.9};
+        double[] ys = {57.5, -89.9};
+
+        GeometryUtils.toGeographic(coordinates, GeometryUtils.DEFAULT_EPSG_SRID, true);
+        GeometryUtils.toGeographic(xs, ys, GeometryUtils.DEFAULT_EPSG_SRID);
+
+        assertArrayEquals(new double[]{11.2, 57.5, -179.9, -89.9}, coordinates, 0.0);
+        assertArrayEquals(new double[]{11.2, -179.9}, xs, 0.0);
+        assertArrayEquals(new double[]{57.5, -89.9}, ys, 0.0);
+    }
+
+    @Test
+    public void testBulkToGeographicRejectsOutOfRangeLatitude() {
+        try {
+            GeometryUtils.toGeographic(new double[]{11.2, 57.5, 11.2, 95.0}, GeometryUtils.DEFAULT_EPSG_SRID);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBulkToGeographicRejectsOutOfRangeLongitude() {
+        try {
+            GeometryUtils.toGeographic(new double[]{181.0}, new double[]{0.0}, GeometryUtils.DEFAULT_EPSG_SRID);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkToGeographicRejectsOddLength() {
+        GeometryUtils.toGeographic(new double[]{11.2, 57.5, 11.2}, GeometryUtils.DEFAULT_EPSG_SRID);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkToGeographicRejectsArraysOfDifferentLengths() {
+        GeometryUtils.toGeographic(new double[2], new double[3], GeometryUtils.DEFAULT_EPSG_SRID);
+    }
+
+    @Test
+    public void testFailedBulkToGeographicMayLeaveTheArraysPartlyReprojected() {
+        double[] coordinates = {400000, 5000000, 450000, Double.NaN};
+        try {
+            GeometryUtils.toGeographic(coordinates, UTM_31N);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(coordinates[0] != 400000);
+        }
+
+        double[] xs = {400000, 450000, 500000};
+        double[] ys = {5000000, Double.NaN, 5100000};
+        try {
+            GeometryUtils.toGeographic(xs, ys, UTM_31N);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(xs[0] != 400000);
+        }
+    }
+
+    @Test
+    public void testNullSridFailsLikeAnUnknownCode() {
+        try {
+            GeometryUtils.toCoordinateReferenceSystem(null);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof NoSuchAuthorityCodeException);
+        }
+        try {
+            GeometryUtils.toGeographic(GeometryUtils.createPoint(0d, 0d), (Integer) null);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof NoSuchAuthorityCodeException);
+        }
+    }
+}
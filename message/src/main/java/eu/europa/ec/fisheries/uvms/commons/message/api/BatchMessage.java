@@ -0,0 +1,51 @@
+/*
+ Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+ This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+ and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+ the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+ details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.europa.ec.fisheries.uvms.commons.message.api;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.jms.Destination;
+
+/**
+ * One message of a batch sent with {@code AbstractProducer.sendBatch}.
+ */
+public class BatchMessage {
+
+    private final String text;
+    private final Map<String, String> properties;
+    private final Destination replyTo;
+
+    public BatchMessage(String text) {
+        this(text, null, null);
+    }
+
+    public BatchMessage(String text, Map<String, String> properties) {
+        this(text, properties, null);
+    }
+
+    public BatchMessage(String text, Map<String, String> properties, Destination replyTo) {
+        this.text = text;
+        this.properties = properties == null ? Collections.<String, String>emptyMap() : properties;
+        this.replyTo = replyTo;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public Destination getReplyTo() {
+        return replyTo;
+    }
+}
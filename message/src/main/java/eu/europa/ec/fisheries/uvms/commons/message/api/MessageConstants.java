@@ -113,6 +113,8 @@ public interface MessageConstants {
     String EVENT_STREAM_EVENT = "event";
     String EVENT_STREAM_SUBSCRIBER_LIST = "subscribers";
     String EVENT_STREAM_MOVEMENT_SOURCE = "movementSource";
+    String EVENT_STREAM_SUBSCRIBER_IDS = "subscriberIds";
+    String EVENT_STREAM_BROADCAST = "broadcast";
 
     String QUEUE_PLUGIN_BRIDGE = "jms/queue/UVMSPluginBridge";
     String QUEUE_MOBILE_TERMINAL_EVENT = "jms/queue/UVMSMobileTerminalEvent";
@@ -124,6 +126,14 @@ public interface MessageConstants {
     String JMS_MESSAGE_GROUP_ORDERING = "JMSXGroupSeq";
     int JMS_MAX_REDELIVERIES = 6;
     int JMS_REDELIVERY_DELAY = 100;
+    String JMS_CONTENT_ENCODING = "UVMS_CONTENT_ENCODING";
+    String JMS_CLAIM_CHECK = "UVMS_CLAIM_CHECK";
+    String JMS_CONTENT_TYPE = "UVMS_CONTENT_TYPE";
+    String JMS_DELIVERY_COUNT = "JMSXDeliveryCount";
+    String JMS_RETRY_COUNT = "UVMS_RETRY_COUNT";
+    String JMS_FAULT_CODE = "UVMS_FAULT_CODE";
+    String JMS_FAULT_MESSAGE = "UVMS_FAULT_MESSAGE";
+    String JMS_ORIGINAL_DESTINATION = "UVMS_ORIGINAL_DESTINATION";
 
     String QUEUE_INCIDENT = "jms/queue/IncidentEvent";
 
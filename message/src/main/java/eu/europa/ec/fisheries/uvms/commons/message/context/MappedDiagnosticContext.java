@@ -17,7 +17,11 @@ import org.slf4j.MDC;
 import javax.jms.Message;
 import javax.jms.TextMessage;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class MappedDiagnosticContext {
 
@@ -25,7 +29,73 @@ public class MappedDiagnosticContext {
 
     public static final String MESSAGE_PROPERTY_PREFIX_MDC = "MDC_";
 
+    /**
+     * Comma separated MDC keys to propagate, see {@link #setPropagatedKeys(String...)}.
+     */
+    public static final String PROPAGATED_KEYS_PROPERTY = "uvms.mdc.propagated.keys";
+
+    /**
+     * Message property holding the whole propagated context in {@link PropagationFormat#COMPACT} format.
+     */
+    public static final String TRACE_CONTEXT_PROPERTY = "UVMS_TRACE_CONTEXT";
+
+    /**
+     * Name of a {@link PropagationFormat}, see {@link #setPropagationFormat(PropagationFormat)}.
+     */
+    public static final String PROPAGATION_FORMAT_PROPERTY = "uvms.mdc.propagation.format";
+
+    private static volatile PropagationFormat propagationFormat = parsePropagationFormat(System.getProperty(PROPAGATION_FORMAT_PROPERTY));
+
+    private static volatile PropagatedKeys propagatedKeys = PropagatedKeys.of(System.getProperty(PROPAGATED_KEYS_PROPERTY, "").split(","));
+
+    /**
+     * Restricts the propagation to the given MDC keys. Their message property names are built once here, so sending
+     * neither copies the MDC nor concatenates strings, and receiving looks up only these properties instead of
+     * enumerating all of them. Without keys the whole MDC is propagated, which is the default.
+     *
+     * @param keys the MDC keys to propagate, e.g. {@code requestId}
+     */
+    public static void setPropagatedKeys(String... keys) {
+        propagatedKeys = PropagatedKeys.of(keys);
+    }
+
+    /**
+     * Selects how outgoing messages carry the context. Incoming messages are read in either format, so receivers must
+     * be upgraded before senders switch to {@link PropagationFormat#COMPACT}.
+     */
+    public static void setPropagationFormat(PropagationFormat format) {
+        propagationFormat = format;
+    }
+
+    /*
+     * Ignores the case of the value, an unknown value falls back to PROPERTIES rather than failing the class initialization.
+     */
+    static PropagationFormat parsePropagationFormat(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return PropagationFormat.PROPERTIES;
+        }
+        try {
+            return PropagationFormat.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown " + PROPAGATION_FORMAT_PROPERTY + " " + value + ", using " + PropagationFormat.PROPERTIES);
+            return PropagationFormat.PROPERTIES;
+        }
+    }
+
     public static void addThreadMappedDiagnosticContextToMessageProperties(TextMessage messageToAddMessageProperties) {
+        addThreadMappedDiagnosticContextToMessageProperties((Message) messageToAddMessageProperties);
+    }
+
+    public static void addThreadMappedDiagnosticContextToMessageProperties(Message messageToAddMessageProperties) {
+        PropagatedKeys keys = propagatedKeys;
+        if (propagationFormat == PropagationFormat.COMPACT) {
+            addTraceContextToMessageProperties(messageToAddMessageProperties, keys);
+            return;
+        }
+        if (keys != null) {
+            addPropagatedKeysToMessageProperties(messageToAddMessageProperties, keys);
+            return;
+        }
         Map<String, String> mappedDiagnosticContextEntries = MDC.getCopyOfContextMap();
         if (mappedDiagnosticContextEntries == null) {
             return;
@@ -42,6 +112,14 @@ public class MappedDiagnosticContext {
     }
 
     public static void addMessagePropertiesToThreadMappedDiagnosticContext(Message message) {
+        if (addTraceContextToThreadMappedDiagnosticContext(message)) {
+            return;
+        }
+        PropagatedKeys keys = propagatedKeys;
+        if (keys != null) {
+            addPropagatedMessagePropertiesToThreadMappedDiagnosticContext(message, keys);
+            return;
+        }
         try {
             Enumeration<String> enumeration = (Enumeration<String>) message.getPropertyNames();
             if (enumeration == null) {
@@ -59,4 +137,119 @@ public class MappedDiagnosticContext {
             LOGGER.warn("Unable to add message properties to thread mapped diagnostic context. Reason: " + e.getMessage());
         }
     }
+
+    private static void addTraceContextToMessageProperties(Message message, PropagatedKeys keys) {
+        Map<String, String> entries;
+        if (keys == null) {
+            entries = MDC.getCopyOfContextMap();
+            if (entries == null || entries.isEmpty()) {
+                return;
+            }
+        } else {
+            entries = new LinkedHashMap<>();
+            for (String key : keys.keys) {
+                String value = MDC.get(key);
+                if (value != null) {
+                    entries.put(key, value);
+                }
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+        }
+        String traceContext = TraceContextCodec.encode(entries);
+        try {
+            message.setStringProperty(TRACE_CONTEXT_PROPERTY, traceContext);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to set trace context " + traceContext + " as message property. Reason: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Returns false if the message carries no compact trace context. Only the propagated keys, if restricted, are restored.
+     */
+    private static boolean addTraceContextToThreadMappedDiagnosticContext(Message message) {
+        try {
+            String traceContext = message.getStringProperty(TRACE_CONTEXT_PROPERTY);
+            if (traceContext == null) {
+                return false;
+            }
+            PropagatedKeys keys = propagatedKeys;
+            for (Map.Entry<String, String> entry : TraceContextCodec.decode(traceContext).entrySet()) {
+                if (keys == null || keys.contains(entry.getKey())) {
+                    MDC.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            LOGGER.warn("Unable to add trace context to thread mapped diagnostic context. Reason: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void addPropagatedKeysToMessageProperties(Message message, PropagatedKeys keys) {
+        for (int i = 0; i < keys.keys.length; i++) {
+            String value = MDC.get(keys.keys[i]);
+            if (value == null) {
+                continue;
+            }
+            try {
+                message.setStringProperty(keys.propertyNames[i], value);
+            } catch (Exception e) {
+                LOGGER.warn("Unable to set mapped diagnostic context property key: " + keys.propertyNames[i] + " value: " + value + "  as message property. Reason: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void addPropagatedMessagePropertiesToThreadMappedDiagnosticContext(Message message, PropagatedKeys keys) {
+        try {
+            for (int i = 0; i < keys.keys.length; i++) {
+                String value = message.getStringProperty(keys.propertyNames[i]);
+                if (value != null) {
+                    MDC.put(keys.keys[i], value);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unable to add message properties to thread mapped diagnostic context. Reason: " + e.getMessage());
+        }
+    }
+
+    private static final class PropagatedKeys {
+
+        private final String[] keys;
+        private final String[] propertyNames;
+
+        private PropagatedKeys(String[] keys) {
+            this.keys = keys;
+            this.propertyNames = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                propertyNames[i] = MESSAGE_PROPERTY_PREFIX_MDC + keys[i];
+            }
+        }
+
+        private boolean contains(String key) {
+            for (String propagatedKey : keys) {
+                if (propagatedKey.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * Returns null, meaning all keys, when no non blank key is given.
+         */
+        private static PropagatedKeys of(String... keys) {
+            if (keys == null) {
+                return null;
+            }
+            Set<String> distinctKeys = new LinkedHashSet<>();
+            for (String key : keys) {
+                if (key != null && !key.trim().isEmpty()) {
+                    distinctKeys.add(key.trim());
+                }
+            }
+            return distinctKeys.isEmpty() ? null : new PropagatedKeys(distinctKeys.toArray(new String[0]));
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.context;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Packs MDC entries into one compact string: a W3C traceparent style header built from the {@value #TRACE_ID} and
+ * {@value #SPAN_ID} entries (or {@code -} without them), followed by the other entries as url encoded pairs, e.g.
+ * {@code 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01;requestId=42&userId=rep_power}.
+ */
+final class TraceContextCodec {
+
+    static final String TRACE_ID = "traceId";
+    static final String SPAN_ID = "spanId";
+
+    private static final String VERSION = "00";
+    private static final String SAMPLED = "01";
+    private static final String NO_TRACE_PARENT = "-";
+
+    private TraceContextCodec() {}
+
+    static String encode(Map<String, String> entries) {
+        StringBuilder encoded = new StringBuilder(64);
+        String traceId = entries.get(TRACE_ID);
+        String spanId = entries.get(SPAN_ID);
+        boolean traceParent = isHex(traceId, 32) && isHex(spanId, 16);
+        if (traceParent) {
+            encoded.append(VERSION).append('-').append(traceId).append('-').append(spanId).append('-').append(SAMPLED);
+        } else {
+            encoded.append(NO_TRACE_PARENT);
+        }
+        char separator = ';';
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getValue() == null || traceParent && (TRACE_ID.equals(entry.getKey()) || SPAN_ID.equals(entry.getKey()))) {
+                continue;
+            }
+            encoded.append(separator)
+                    .append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        return encoded.toString();
+    }
+
+    static Map<String, String> decode(String encoded) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        int pairsStart = encoded.indexOf(';');
+        String traceParent = pairsStart < 0 ? encoded : encoded.substring(0, pairsStart);
+        String[] parts = traceParent.split("-");
+        if (parts.length == 4 && isHex(parts[1], 32) && isHex(parts[2], 16)) {
+            entries.put(TRACE_ID, parts[1]);
+            entries.put(SPAN_ID, parts[2]);
+        }
+        if (pairsStart < 0) {
+            return entries;
+        }
+        for (String pair : encoded.substring(pairsStart + 1).split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                entries.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isHex(String value, int length) {
+        if (value == null || value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -13,8 +13,14 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 package eu.europa.ec.fisheries.uvms.commons.message.impl;
 
 import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetrics;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetricsRegistry;
+import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.jms.*;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 public abstract class AbstractConsumer {
 
@@ -23,6 +29,9 @@ public abstract class AbstractConsumer {
     @Inject
     JMSContext context;
 
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
     public abstract Destination getDestination();
 
     public <T> T getMessage(final String correlationId, Class<T> targetclazz) throws JMSException {
@@ -31,32 +40,109 @@ public abstract class AbstractConsumer {
 
     @SuppressWarnings("unchecked")
     public <T> T getMessage(final String correlationId, Class<T> targetclazz, Long timeoutInMillis) throws JMSException {
-        if (correlationId == null || correlationId.isEmpty()) {
-            throw new IllegalArgumentException("No CorrelationID provided!");
-        }
-        Message receivedMessage = context.createConsumer(getDestination(), "JMSCorrelationID='" + correlationId + "'")
-                                        .receive(timeoutInMillis);
-        if (receivedMessage != null) {
-            MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(receivedMessage);
-            return (T) receivedMessage;
-        }
-        throw new JMSException("No TextMessage retrieved");
+        return (T) receive(correlationId, timeoutInMillis);
     }
 
+    /**
+     * Waits for the correlated message and returns its body, read as {@link #getMessageBody(String, Class, Long)} does.
+     * For compatibility with the releases where this overload returned the message itself, a {@link Message} type such
+     * as {@code TextMessage.class} still returns the message, use {@link #getMessage(String, Class)} for that instead.
+     */
     public <T> T getMessageBody(final String correlationId, Class<T> messageBodyType) throws JMSException {
-        return getMessage(correlationId, messageBodyType, DEFAULT_TIME_TO_CONSUME);
+        if (Message.class.isAssignableFrom(messageBodyType)) {
+            return getMessage(correlationId, messageBodyType, DEFAULT_TIME_TO_CONSUME);
+        }
+        return getMessageBody(correlationId, messageBodyType, DEFAULT_TIME_TO_CONSUME);
     }
 
     public <T> T getMessageBody(final String correlationId, Class<T> messageBodyType, Long timeoutInMillis) throws JMSException {
+        Message receivedMessage = receive(correlationId, timeoutInMillis);
+        if (messageBodyType == String.class) {
+            String text = MessageBodies.readText(receivedMessage);
+            ClaimCheck.release(receivedMessage, transactionSynchronizationRegistry);
+            return messageBodyType.cast(text);
+        }
+        return receivedMessage.getBody(messageBodyType);
+    }
+
+    private Message receive(final String correlationId, Long timeoutInMillis) throws JMSException {
         if (correlationId == null || correlationId.isEmpty()) {
             throw new IllegalArgumentException("No CorrelationID provided!");
         }
+        long start = System.nanoTime();
         Message receivedMessage = context.createConsumer(getDestination(), "JMSCorrelationID='" + correlationId + "'")
                                         .receive(timeoutInMillis);
+        if (MessagingMetricsRegistry.isEnabled()) {
+            recordReply(receivedMessage, System.nanoTime() - start);
+        }
         if (receivedMessage != null) {
             MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(receivedMessage);
-            return receivedMessage.getBody(messageBodyType);
+            return receivedMessage;
         }
         throw new JMSException("No TextMessage retrieved");
     }
+
+    private void recordReply(Message receivedMessage, long waitedNanos) {
+        MessagingMetrics metrics = MessagingMetricsRegistry.get();
+        String destinationName = Destinations.metricsNameOf(getDestination());
+        if (receivedMessage == null) {
+            metrics.replyTimedOut(destinationName);
+        } else {
+            metrics.replyReceived(destinationName, waitedNanos);
+            metrics.messageReceived(destinationName, MessageBodies.payloadSize(receivedMessage));
+        }
+    }
+
+    /**
+     * Waits for the correlated message and decodes its payload with the codec of its content type, see
+     * {@link MessageBodies#decode(Message, Class)}.
+     */
+    public <T> T getPayload(final String correlationId, Class<T> payloadType) throws JMSException {
+        return getPayload(correlationId, payloadType, DEFAULT_TIME_TO_CONSUME);
+    }
+
+    public <T> T getPayload(final String correlationId, Class<T> payloadType, Long timeoutInMillis) throws JMSException {
+        Message receivedMessage = receive(correlationId, timeoutInMillis);
+        T payload = MessageBodies.decode(receivedMessage, payloadType);
+        ClaimCheck.release(receivedMessage, transactionSynchronizationRegistry);
+        return payload;
+    }
+
+    /**
+     * Waits asynchronously for the correlated message, dispatched by the {@link ReplyDispatcher} of the destination of
+     * this consumer instead of a dedicated selector based consumer. The future completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} when no reply arrives in time. Temporary destinations are rejected,
+     * see {@link ReplyDispatcher#forDestination(Destination)}.
+     */
+    public <T extends Message> CompletableFuture<T> getMessageAsync(final String correlationId, Class<T> targetclazz, long timeoutInMillis) {
+        long start = System.nanoTime();
+        CompletableFuture<Message> reply = ReplyDispatcher.forDestination(getDestination()).register(correlationId, timeoutInMillis);
+        if (MessagingMetricsRegistry.isEnabled()) {
+            reply.whenComplete((message, failure) -> {
+                if (message != null || failure instanceof TimeoutException) {
+                    recordReply(message, System.nanoTime() - start);
+                }
+            });
+        }
+        return reply.thenApply(targetclazz::cast);
+    }
+
+    public <T extends Message> CompletableFuture<T> getMessageAsync(final String correlationId, Class<T> targetclazz) {
+        return getMessageAsync(correlationId, targetclazz, DEFAULT_TIME_TO_CONSUME);
+    }
+
+    /**
+     * Waits for the correlated message and unmarshalls its XML payload, bytes messages are parsed straight from the
+     * message body without building a String.
+     */
+    public <T> T getUnmarshalledMessageBody(final String correlationId, Class<T> jaxbClass) throws JMSException {
+        return getUnmarshalledMessageBody(correlationId, jaxbClass, DEFAULT_TIME_TO_CONSUME);
+    }
+
+    public <T> T getUnmarshalledMessageBody(final String correlationId, Class<T> jaxbClass, Long timeoutInMillis) throws JMSException {
+        Message receivedMessage = getMessage(correlationId, Message.class, timeoutInMillis);
+        T body = MessageBodies.unMarshall(receivedMessage, jaxbClass, null);
+        ClaimCheck.release(receivedMessage, transactionSynchronizationRegistry);
+        return body;
+    }
 }
\ No newline at end of file
@@ -12,15 +12,21 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 
 package eu.europa.ec.fisheries.uvms.commons.message.impl;
 
+import eu.europa.ec.fisheries.uvms.commons.message.api.BatchMessage;
 import eu.europa.ec.fisheries.uvms.commons.message.api.Fault;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
 import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.jms.*;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.xml.bind.JAXBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public abstract class AbstractProducer {
@@ -31,8 +37,71 @@ public abstract class AbstractProducer {
     @JMSConnectionFactory("java:/JmsXA")
     JMSContext context;
 
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private ProducerPipeline pipeline;
+    private Destination resolvedDestination;
+    private volatile boolean chunkSizeIgnoredLogged;
+
     public abstract Destination getDestination();
 
+    /**
+     * Connection factory used by {@link #sendBatch(Collection, int)} to send in locally transacted chunks.
+     * It must not be the XA factory ({@code java:/JmsXA}) since its sessions are enlisted in the JTA transaction.
+     * Override to enable chunked batches, by default batches join the current JTA transaction.
+     */
+    protected ConnectionFactory getBatchConnectionFactory() {
+        return null;
+    }
+
+    /**
+     * Compression of the payloads sent with the sendModuleMessage and sendMessageToSpecificQueue methods, disabled by
+     * default. Override to enable it once the consumers of the destinations read the payload through
+     * {@link MessageBodies}, responses and faults are never compressed.
+     */
+    protected PayloadCompression getPayloadCompression() {
+        return PayloadCompression.DISABLED;
+    }
+
+    /**
+     * Claim check of the oversized payloads sent with the sendModuleMessage and sendMessageToSpecificQueue methods,
+     * disabled by default. Override to enable it once the consumers of the destinations registered the same store.
+     */
+    protected ClaimCheck getClaimCheck() {
+        return ClaimCheck.DISABLED;
+    }
+
+    /**
+     * Codec of the payloads sent with the sendPayload methods, XML by default. Override to switch the producer to a
+     * cheaper codec once its consumers receive with {@link AbstractConsumer#getPayload(String, Class)} or
+     * {@link MessageBodies#decode(Message, Class)}.
+     * Payloads the codec does not support are sent with another one, see {@link PayloadCodecs#forType(Class, PayloadCodec)}.
+     */
+    protected PayloadCodec getPayloadCodec() {
+        return PayloadCodecs.JAXB;
+    }
+
+    /**
+     * @return the send pipeline of this producer, created on first use since it needs the injected resources
+     */
+    protected ProducerPipeline getProducerPipeline() {
+        if (pipeline == null) {
+            pipeline = new ProducerPipeline(context, transactionSynchronizationRegistry);
+        }
+        return pipeline;
+    }
+
+    /**
+     * @return the destination of this producer, {@link #getDestination()} is only resolved once
+     */
+    protected Destination getResolvedDestination() {
+        if (resolvedDestination == null) {
+            resolvedDestination = getDestination();
+        }
+        return resolvedDestination;
+    }
+
     public String sendModuleMessage(final String text, final Destination replyTo) throws JMSException {
         return sendModuleMessageWithProps(text, replyTo, null, DeliveryMode.PERSISTENT, 0L);
     }
@@ -47,7 +116,7 @@ public abstract class AbstractProducer {
 
     public String sendModuleMessageWithProps(final String text, final Destination replyTo, Map<String, String> props, final int jmsDeliveryMode, final long timeToLiveInMillis) throws JMSException {
 
-        TextMessage message = context.createTextMessage();
+        Message message = MessageBodies.createMessage(context, text, getPayloadCompression(), getClaimCheck());
         if (props != null && props.size() > 0) {
             for (Map.Entry<String, String> entry : props.entrySet()) {
                 message.setStringProperty(entry.getKey(), entry.getValue());
@@ -55,14 +124,133 @@ public abstract class AbstractProducer {
         }
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
         message.setJMSReplyTo(replyTo);
-        message.setText(text);
-        context.createProducer()
-                .setDeliveryMode(jmsDeliveryMode)
-                .setTimeToLive(timeToLiveInMillis)
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
         return message.getJMSMessageID();
     }
 
+    /**
+     * Marshalls the payload as UTF-8 XML directly into a {@link BytesMessage}, avoiding the String copies of
+     * {@link #sendModuleMessageWithProps(String, Destination, Map, int, long)} for large payloads.
+     * Consumers read it with {@link MessageBodies#unMarshall(Message, Class, javax.xml.validation.Schema)}.
+     */
+    public <T> String sendModuleMessageAsBytes(final T payload, final Destination replyTo, Map<String, String> props, final int jmsDeliveryMode, final long timeToLiveInMillis) throws JMSException, JAXBException {
+
+        MarshallingBuffer buffer = JAXBUtils.marshallJaxBObjectToBuffer(payload);
+        BytesMessage message = context.createBytesMessage();
+        message.writeBytes(buffer.getBuffer(), 0, buffer.size());
+        if (props != null && props.size() > 0) {
+            for (Map.Entry<String, String> entry : props.entrySet()) {
+                message.setStringProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        message.setJMSReplyTo(replyTo);
+        getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
+        return message.getJMSMessageID();
+    }
+
+    public <T> String sendModuleMessageAsBytes(final T payload, final Destination replyTo) throws JMSException, JAXBException {
+        return sendModuleMessageAsBytes(payload, replyTo, null, DeliveryMode.PERSISTENT, 0L);
+    }
+
+    public <T> String sendPayload(final T payload, final Destination replyTo) throws JMSException {
+        return sendPayload(payload, replyTo, null, DeliveryMode.PERSISTENT, 0L);
+    }
+
+    /**
+     * Sends the payload encoded with {@link #getPayloadCodec()}, if it supports the payload, in a {@link BytesMessage}
+     * carrying the content type.
+     */
+    public <T> String sendPayload(final T payload, final Destination replyTo, Map<String, String> props, final int jmsDeliveryMode, final long timeToLiveInMillis) throws JMSException {
+        BytesMessage message = MessageBodies.createMessage(context, payload, PayloadCodecs.forType(payload.getClass(), getPayloadCodec()));
+        if (props != null && props.size() > 0) {
+            for (Map.Entry<String, String> entry : props.entrySet()) {
+                message.setStringProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        message.setJMSReplyTo(replyTo);
+        getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
+        return message.getJMSMessageID();
+    }
+
+    /**
+     * Same as {@link #sendBatch(Collection, int, int, long)} with persistent messages that never expire. The
+     * {@code chunkSize} only applies when {@link #getBatchConnectionFactory()} provides a factory, by default the whole
+     * batch joins the current JTA transaction.
+     */
+    public List<String> sendBatch(Collection<BatchMessage> messages, int chunkSize) throws JMSException {
+        return sendBatch(messages, chunkSize, DeliveryMode.PERSISTENT, 0L);
+    }
+
+    /**
+     * Sends a collection of messages to the destination of this producer in as few transactions as possible.
+     * <p>
+     * If {@link #getBatchConnectionFactory()} provides a factory, the messages are sent in a locally transacted session
+     * committed every {@code chunkSize} messages. If a chunk fails it is rolled back and the exception tells how many
+     * messages were committed before. Otherwise all messages are sent with the injected context and committed together
+     * with the current JTA transaction, {@code chunkSize} is then ignored and a warning is logged the first time a
+     * batch is larger than it.
+     *
+     * @return the JMS message ids, in the order of the given messages
+     */
+    public List<String> sendBatch(Collection<BatchMessage> messages, int chunkSize, final int jmsDeliveryMode, final long timeToLiveInMillis) throws JMSException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive but was " + chunkSize);
+        }
+        List<String> messageIds = new ArrayList<>(messages.size());
+        ConnectionFactory batchConnectionFactory = getBatchConnectionFactory();
+        if (batchConnectionFactory == null) {
+            if (messages.size() > chunkSize && !chunkSizeIgnoredLogged) {
+                chunkSizeIgnoredLogged = true;
+                LOGGER.warn("Chunk size {} ignored, batches of {} join the current transaction. Override getBatchConnectionFactory() to send in chunks",
+                        chunkSize, getClass().getName());
+            }
+            for (BatchMessage batchMessage : messages) {
+                TextMessage message = createBatchTextMessage(context, batchMessage);
+                getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
+                messageIds.add(message.getJMSMessageID());
+            }
+            return messageIds;
+        }
+        try (JMSContext batchContext = batchConnectionFactory.createContext(JMSContext.SESSION_TRANSACTED)) {
+            ProducerPipeline batchPipeline = new ProducerPipeline(batchContext, null);
+            List<String> chunkIds = new ArrayList<>(chunkSize);
+            try {
+                for (BatchMessage batchMessage : messages) {
+                    TextMessage message = createBatchTextMessage(batchContext, batchMessage);
+                    batchPipeline.send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
+                    chunkIds.add(message.getJMSMessageID());
+                    if (chunkIds.size() == chunkSize) {
+                        batchContext.commit();
+                        messageIds.addAll(chunkIds);
+                        chunkIds.clear();
+                    }
+                }
+                if (!chunkIds.isEmpty()) {
+                    batchContext.commit();
+                    messageIds.addAll(chunkIds);
+                }
+            } catch (JMSException | JMSRuntimeException e) {
+                batchContext.rollback();
+                JMSException jmsException = new JMSException("Batch failed after " + messageIds.size() + " committed messages: " + e.getMessage());
+                jmsException.initCause(e);
+                throw jmsException;
+            }
+        }
+        return messageIds;
+    }
+
+    private TextMessage createBatchTextMessage(JMSContext jmsContext, BatchMessage batchMessage) throws JMSException {
+        TextMessage message = jmsContext.createTextMessage(batchMessage.getText());
+        for (Map.Entry<String, String> entry : batchMessage.getProperties().entrySet()) {
+            message.setStringProperty(entry.getKey(), entry.getValue());
+        }
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        message.setJMSReplyTo(batchMessage.getReplyTo());
+        return message;
+    }
+
     public void sendResponseMessageToSender(final TextMessage message, final String text) throws JMSException {
         sendResponseMessageToSender(message, text, Message.DEFAULT_TIME_TO_LIVE);
     }
@@ -76,10 +264,7 @@ public abstract class AbstractProducer {
         TextMessage responseMessage = context.createTextMessage(text);
         responseMessage.setJMSCorrelationID(message.getJMSMessageID());
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(responseMessage);
-        context.createProducer()
-                .setDeliveryMode(deliveryMode)
-                .setTimeToLive(timeToLive)
-                .send(message.getJMSReplyTo(), responseMessage);
+        getProducerPipeline().send(message.getJMSReplyTo(), responseMessage, deliveryMode, timeToLive);
     }
 
     public void sendFault(final TextMessage message, Fault fault) {
@@ -87,13 +272,55 @@ public abstract class AbstractProducer {
             String text = JAXBUtils.marshallJaxBObjectToString(fault);
             TextMessage response = context.createTextMessage(text);
             MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(response);
-            context.createProducer()
-                    .send(message.getJMSReplyTo(), response);
+            getProducerPipeline().send(message.getJMSReplyTo(), response, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
         } catch (JAXBException | JMSException e) {
             LOGGER.warn("Could not send fault message.", e);
         }
     }
 
+    /**
+     * Handles a message whose processing failed without letting the broker redeliver it right away: a copy is sent back
+     * to the destination of the message after the backoff delay of the policy, or to the parking queue with the
+     * original properties and the fault once the message is poison. The caller then completes the consumption of the
+     * failed message normally. A claim checked payload must not be released before.
+     *
+     * @param failed the message whose processing failed
+     * @param cause the failure, checked against the non retryable causes of the policy
+     * @param fault the fault attached to the parked message as {@link MessageConstants#JMS_FAULT_CODE} and
+     *              {@link MessageConstants#JMS_FAULT_MESSAGE} properties
+     * @param policy the retry policy
+     * @param parkingQueue the destination of the poison messages
+     * @return whether the message was retried or parked
+     */
+    public RetryPolicy.Outcome retryOrPark(Message failed, Throwable cause, Fault fault, RetryPolicy policy, Destination parkingQueue) throws JMSException {
+        Message copy = MessageBodies.copy(context, failed);
+        int retryCount = RetryPolicy.getRetryCount(failed);
+        long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+        if (failed.getJMSExpiration() > 0) {
+            timeToLive = Math.max(1, failed.getJMSExpiration() - System.currentTimeMillis());
+        }
+        Destination origin = failed.getJMSDestination();
+
+        if (origin != null && policy.isRetryable(cause) && !policy.isPoison(failed)) {
+            long delay = policy.getDelay(retryCount);
+            copy.setIntProperty(MessageConstants.JMS_RETRY_COUNT, retryCount + 1);
+            LOGGER.info("Retrying message {} in {} ms, retry {} of {}", failed.getJMSMessageID(), delay, retryCount + 1, policy.getMaxRedeliveries());
+            getProducerPipeline().sendDelayed(origin, copy, failed.getJMSDeliveryMode(), timeToLive, delay);
+            return RetryPolicy.Outcome.RETRIED;
+        }
+
+        if (fault != null) {
+            copy.setIntProperty(MessageConstants.JMS_FAULT_CODE, fault.getCode());
+            copy.setStringProperty(MessageConstants.JMS_FAULT_MESSAGE, fault.getFault());
+        }
+        if (origin != null) {
+            copy.setStringProperty(MessageConstants.JMS_ORIGINAL_DESTINATION, Destinations.nameOf(origin));
+        }
+        LOGGER.warn("Parking message {} after {} retries", failed.getJMSMessageID(), retryCount, cause);
+        getProducerPipeline().send(parkingQueue, copy, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
+        return RetryPolicy.Outcome.PARKED;
+    }
+
     public String sendMessageWithSpecificIds(String messageToSend,  Destination replyTo, String jmsMessageID, String jmsCorrelationID) throws JMSException {
         final TextMessage message = context.createTextMessage(messageToSend);
         if (jmsMessageID != null && jmsMessageID.length() > 0) {
@@ -105,9 +332,7 @@ public abstract class AbstractProducer {
         message.setJMSReplyTo(replyTo);
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .setDeliveryMode(DeliveryMode.PERSISTENT)
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
         return message.getJMSMessageID();
     }
 
@@ -122,29 +347,25 @@ public abstract class AbstractProducer {
 
     public String sendMessageToSpecificQueue(String messageToSend, Destination destination, Destination replyTo, long timeToLiveInMillis, int deliveryMode) throws JMSException {
 
-        final TextMessage message = context.createTextMessage(messageToSend);
+        final Message message = MessageBodies.createMessage(context, messageToSend, getPayloadCompression(), getClaimCheck());
         message.setJMSReplyTo(replyTo);
 
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .setTimeToLive(timeToLiveInMillis)
-                .setDeliveryMode(deliveryMode)
-                .send(destination, message);
+        getProducerPipeline().send(destination, message, deliveryMode, timeToLiveInMillis);
 
         return message.getJMSMessageID();
     }
 
     public String sendMessageToSpecificQueueWithFunction(String messageToSend, Destination destination, Destination replyTo, String function, String grouping) throws JMSException {
 
-        TextMessage message = context.createTextMessage(messageToSend);
+        Message message = MessageBodies.createMessage(context, messageToSend, getPayloadCompression(), getClaimCheck());
         message.setJMSReplyTo(replyTo);
         message.setStringProperty(MessageConstants.JMS_FUNCTION_PROPERTY, function);
         message.setStringProperty(MessageConstants.JMS_MESSAGE_GROUP, grouping);
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .send(destination, message);
+        getProducerPipeline().send(destination, message, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
 
         return message.getJMSMessageID();
     }
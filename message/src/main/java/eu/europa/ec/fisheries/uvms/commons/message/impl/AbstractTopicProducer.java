@@ -13,42 +13,135 @@ package eu.europa.ec.fisheries.uvms.commons.message.impl;
 import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
 import eu.europa.ec.fisheries.uvms.commons.message.context.MappedDiagnosticContext;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.jms.*;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Collection;
 
 public abstract class AbstractTopicProducer {
 
     private static final String SERVICE_NAME = "ServiceName";
+    static final long EVENT_STREAM_TIME_TO_LIVE = 5000;
 
     @Inject
     @JMSConnectionFactory("java:/JmsXA")
     JMSContext context;
 
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private ProducerPipeline pipeline;
+    private Destination resolvedDestination;
+
     public abstract Destination getDestination();
 
+    /**
+     * @return the context the messages are created and sent with, the container injected one by default. Override to
+     * return an application managed context when sending from threads without request scope or transaction, e.g.
+     * from a {@link ConflatingEventStreamPublisher}.
+     */
+    protected JMSContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the send pipeline of this producer, created on first use since it needs the injected resources
+     */
+    protected ProducerPipeline getProducerPipeline() {
+        if (pipeline == null) {
+            pipeline = new ProducerPipeline(getContext(), transactionSynchronizationRegistry);
+        }
+        return pipeline;
+    }
+
+    /**
+     * @return the destination of this producer, {@link #getDestination()} is only resolved once
+     */
+    protected Destination getResolvedDestination() {
+        if (resolvedDestination == null) {
+            resolvedDestination = getDestination();
+        }
+        return resolvedDestination;
+    }
+
+    /**
+     * Compression of the payloads sent with the sendEventBusMessage methods, disabled by default. Override to enable it
+     * once the subscribers of the topic read the payload through {@link MessageBodies}.
+     */
+    protected PayloadCompression getPayloadCompression() {
+        return PayloadCompression.DISABLED;
+    }
+
+    /**
+     * Codec of the payloads sent with the sendEventBusPayload methods, XML by default. Override to switch to a cheaper
+     * codec once the subscribers of the topic decode with {@link MessageBodies#decode(Message, Class)}.
+     * Payloads the codec does not support are sent with another one, see {@link PayloadCodecs#forType(Class, PayloadCodec)}.
+     */
+    protected PayloadCodec getPayloadCodec() {
+        return PayloadCodecs.JAXB;
+    }
+
     public String sendEventBusMessage(String text, String serviceName, int jmsDeliveryMode, long timeToLiveInMillis) throws JMSException {
-        TextMessage message = context.createTextMessage(text);
+        Message message = MessageBodies.createMessage(getContext(), text, getPayloadCompression());
         message.setStringProperty(SERVICE_NAME, serviceName);
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .setDeliveryMode(jmsDeliveryMode)
-                .setTimeToLive(timeToLiveInMillis)
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
         return message.getJMSMessageID();
     }
 
     public String sendMessageToEventStream(String data, String eventName, String subscriberListJson, String movementSource) throws JMSException {
-        TextMessage message = context.createTextMessage(data);
+        return sendMessageToEventStream(data, eventName, subscriberListJson, movementSource, EVENT_STREAM_TIME_TO_LIVE);
+    }
+
+    public String sendMessageToEventStream(String data, String eventName, String subscriberListJson, String movementSource, long timeToLiveInMillis) throws JMSException {
+        TextMessage message = getContext().createTextMessage(data);
         message.setStringProperty(MessageConstants.EVENT_STREAM_EVENT, eventName);
         message.setStringProperty(MessageConstants.EVENT_STREAM_SUBSCRIBER_LIST, subscriberListJson);
         message.setStringProperty(MessageConstants.EVENT_STREAM_MOVEMENT_SOURCE, movementSource);
 
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
-        context.createProducer()
-                .setDeliveryMode(DeliveryMode.NON_PERSISTENT)
-                .setTimeToLive(5000)
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, DeliveryMode.NON_PERSISTENT, timeToLiveInMillis);
+        return message.getJMSMessageID();
+    }
+
+    /**
+     * Sends to the EventStream topic addressing the subscribers with properties the broker evaluates instead of the
+     * JSON list of {@link #sendMessageToEventStream}, the subscribers consume with the selector of
+     * {@link EventStreamSubscribers#selectorFor(String)}.
+     *
+     * @param subscribers the ids of the subscribers, null or empty for a broadcast
+     */
+    public String sendFilteredMessageToEventStream(String data, String eventName, Collection<String> subscribers, String movementSource) throws JMSException {
+        return sendFilteredMessageToEventStream(data, eventName, subscribers, movementSource, EVENT_STREAM_TIME_TO_LIVE);
+    }
+
+    public String sendFilteredMessageToEventStream(String data, String eventName, Collection<String> subscribers, String movementSource, long timeToLiveInMillis) throws JMSException {
+        TextMessage message = getContext().createTextMessage(data);
+        message.setStringProperty(MessageConstants.EVENT_STREAM_EVENT, eventName);
+        EventStreamSubscribers.addressTo(message, subscribers);
+        message.setStringProperty(MessageConstants.EVENT_STREAM_MOVEMENT_SOURCE, movementSource);
+
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        getProducerPipeline().send(getResolvedDestination(), message, DeliveryMode.NON_PERSISTENT, timeToLiveInMillis);
+        return message.getJMSMessageID();
+    }
+
+    public <T> String sendEventBusPayload(T payload, String serviceName) throws JMSException {
+        return sendEventBusPayload(payload, serviceName, DeliveryMode.PERSISTENT, 0L);
+    }
+
+    /**
+     * Sends the payload encoded with {@link #getPayloadCodec()}, if it supports the payload, in a {@link BytesMessage}
+     * carrying the content type.
+     */
+    public <T> String sendEventBusPayload(T payload, String serviceName, int jmsDeliveryMode, long timeToLiveInMillis) throws JMSException {
+        BytesMessage message = MessageBodies.createMessage(getContext(), payload, PayloadCodecs.forType(payload.getClass(), getPayloadCodec()));
+        message.setStringProperty(SERVICE_NAME, serviceName);
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+
+        getProducerPipeline().send(getResolvedDestination(), message, jmsDeliveryMode, timeToLiveInMillis);
         return message.getJMSMessageID();
     }
 
@@ -58,13 +151,12 @@ public abstract class AbstractTopicProducer {
 
     public String sendEventBusMessage(String text, String serviceName, Destination replyToDestination) throws JMSException {
 
-        TextMessage message = context.createTextMessage(text);
+        Message message = MessageBodies.createMessage(getContext(), text, getPayloadCompression());
         message.setStringProperty(SERVICE_NAME, serviceName);
         message.setJMSReplyTo(replyToDestination);
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
         return message.getJMSMessageID();
 
     }
@@ -75,7 +167,7 @@ public abstract class AbstractTopicProducer {
 
     public String sendEventBusMessageWithSpecificIds(String text, String serviceName, Destination replyToDestination, String messageId, String messageCorrelationId, int timeToLive, int deliveryMode) throws JMSException {
 
-        TextMessage message = context.createTextMessage(text);
+        Message message = MessageBodies.createMessage(getContext(), text, getPayloadCompression());
         message.setStringProperty(SERVICE_NAME, serviceName);
         message.setJMSReplyTo(replyToDestination);
 
@@ -87,10 +179,7 @@ public abstract class AbstractTopicProducer {
         }
         MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
 
-        context.createProducer()
-                .setTimeToLive(timeToLive)
-                .setDeliveryMode(deliveryMode)
-                .send(getDestination(), message);
+        getProducerPipeline().send(getResolvedDestination(), message, deliveryMode, timeToLive);
         return message.getJMSMessageID();
     }
 }
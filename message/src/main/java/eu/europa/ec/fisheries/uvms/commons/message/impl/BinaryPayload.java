@@ -0,0 +1,26 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A payload writing its own compact binary form for the {@link PayloadCodecs#BINARY} codec. Implementations need a
+ * public no argument constructor, {@link #readFrom(DataInput)} reads what {@link #writeTo(DataOutput)} wrote.
+ */
+public interface BinaryPayload {
+
+    void writeTo(DataOutput out) throws IOException;
+
+    void readFrom(DataInput in) throws IOException;
+}
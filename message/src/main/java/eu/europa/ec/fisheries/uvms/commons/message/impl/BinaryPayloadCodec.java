@@ -0,0 +1,61 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact binary form of {@link BinaryPayload}s. Unlike Java serialization the receiver only instantiates the type
+ * it asked for, so a message can not make it create arbitrary classes.
+ */
+class BinaryPayloadCodec implements PayloadCodec {
+
+    static final String CONTENT_TYPE = "application/x-uvms-binary";
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return BinaryPayload.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void encode(Object payload, OutputStream out) throws IOException {
+        if (!(payload instanceof BinaryPayload)) {
+            throw new IOException(payload.getClass().getName() + " is not a " + BinaryPayload.class.getSimpleName());
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        ((BinaryPayload) payload).writeTo(data);
+        data.flush();
+    }
+
+    @Override
+    public <T> T decode(InputStream in, Class<T> type) throws IOException {
+        if (!supports(type)) {
+            throw new IOException(type.getName() + " is not a " + BinaryPayload.class.getSimpleName());
+        }
+        T payload;
+        try {
+            payload = type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Could not instantiate " + type.getName(), e);
+        }
+        ((BinaryPayload) payload).readFrom(new DataInputStream(in));
+        return payload;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Storage of the payloads of oversized messages, see {@link ClaimCheck}.
+ * The producing and the consuming module must use stores with the same id and the same underlying storage.
+ */
+public interface BlobStore {
+
+    /**
+     * @return the id of the store, sent as part of the claim check reference
+     */
+    String getId();
+
+    /**
+     * Stores a new blob.
+     *
+     * @param content writes the content of the blob
+     * @return the id of the stored blob
+     */
+    String put(BlobContent content) throws IOException;
+
+    /**
+     * @return the content of the blob
+     * @throws java.io.FileNotFoundException if the blob does not exist (anymore)
+     */
+    InputStream open(String blobId) throws IOException;
+
+    void delete(String blobId) throws IOException;
+
+    /**
+     * Deletes the blobs older than the time to live of the store, for blobs whose message was never consumed.
+     *
+     * @return the number of deleted blobs
+     */
+    int purgeExpired() throws IOException;
+
+    @FunctionalInterface
+    interface BlobContent {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
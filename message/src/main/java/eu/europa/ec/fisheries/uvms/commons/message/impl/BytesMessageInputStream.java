@@ -0,0 +1,58 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the body of a {@link BytesMessage} as a stream, without copying it into a single array first.
+ */
+class BytesMessageInputStream extends InputStream {
+
+    private final BytesMessage message;
+    private final byte[] single = new byte[1];
+    private byte[] scratch;
+
+    BytesMessageInputStream(BytesMessage message) throws JMSException {
+        this.message = message;
+        message.reset();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        try {
+            if (off == 0) {
+                return message.readBytes(b, len);
+            }
+            if (scratch == null || scratch.length < len) {
+                scratch = new byte[len];
+            }
+            int read = message.readBytes(scratch, len);
+            if (read > 0) {
+                System.arraycopy(scratch, 0, b, off, read);
+            }
+            return read;
+        } catch (JMSException e) {
+            throw new IOException("Could not read message body", e);
+        }
+    }
+}
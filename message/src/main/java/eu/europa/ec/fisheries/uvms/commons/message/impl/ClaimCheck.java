@@ -0,0 +1,157 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Claim check for oversized messages: payloads of at least {@link #getThreshold()} characters are written to a
+ * {@link BlobStore} and only a {@code <store id>:<blob id>} reference is sent in the
+ * {@link MessageConstants#JMS_CLAIM_CHECK} property of an empty message.
+ * <p>
+ * {@link MessageBodies} resolves the reference transparently through the stores registered with
+ * {@link #registerStore(BlobStore)}, so the consuming module registers a store with the same id at startup.
+ * A consumed blob is deleted with {@link #release(Message, TransactionSynchronizationRegistry)}, blobs of messages that
+ * are never consumed are purged by the store once their time to live expired.
+ */
+public final class ClaimCheck {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClaimCheck.class);
+
+    public static final ClaimCheck DISABLED = new ClaimCheck(null, Integer.MAX_VALUE);
+
+    private static final ConcurrentMap<String, BlobStore> STORES = new ConcurrentHashMap<>();
+
+    private final BlobStore store;
+    private final int threshold;
+
+    private ClaimCheck(BlobStore store, int threshold) {
+        this.store = store;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param store the store the payloads are written to, it is registered for resolving references as well
+     * @param threshold the minimum payload length in characters to send through the store
+     */
+    public static ClaimCheck of(BlobStore store, int threshold) {
+        if (store == null) {
+            throw new IllegalArgumentException("No blob store provided!");
+        }
+        registerStore(store);
+        return new ClaimCheck(store, threshold);
+    }
+
+    /**
+     * Makes the store available for resolving the references of incoming messages.
+     */
+    public static void registerStore(BlobStore store) {
+        STORES.put(store.getId(), store);
+    }
+
+    public BlobStore getStore() {
+        return store;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public boolean appliesTo(String text) {
+        return store != null && text != null && text.length() >= threshold;
+    }
+
+    /**
+     * Writes the payload to the store.
+     *
+     * @return the reference to send in the {@link MessageConstants#JMS_CLAIM_CHECK} property
+     */
+    String store(String text) throws IOException {
+        String blobId = store.put(out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(text);
+            writer.flush();
+        });
+        return store.getId() + ':' + blobId;
+    }
+
+    /**
+     * @return the payload the claim check reference of the message points to
+     */
+    static InputStream open(String reference) throws IOException {
+        int separator = reference.indexOf(':');
+        BlobStore blobStore = separator < 0 ? null : STORES.get(reference.substring(0, separator));
+        if (blobStore == null) {
+            throw new IOException("No blob store registered for claim check " + reference);
+        }
+        return blobStore.open(reference.substring(separator + 1));
+    }
+
+    /**
+     * Deletes the blob of a consumed claim check message, once the current transaction committed if there is one,
+     * so that a rolled back message can still be redelivered with its payload.
+     *
+     * @param message the consumed message, nothing is done if it carries no claim check
+     * @param transactionSynchronizationRegistry the registry of the container, or null outside of it
+     */
+    public static void release(Message message, TransactionSynchronizationRegistry transactionSynchronizationRegistry) throws JMSException {
+        String reference = message.getStringProperty(MessageConstants.JMS_CLAIM_CHECK);
+        if (reference == null) {
+            return;
+        }
+        if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+            delete(reference);
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    delete(reference);
+                }
+            }
+        });
+    }
+
+    private static void delete(String reference) {
+        int separator = reference.indexOf(':');
+        BlobStore blobStore = separator < 0 ? null : STORES.get(reference.substring(0, separator));
+        if (blobStore == null) {
+            LOGGER.warn("No blob store registered for claim check {}, it is left to expire", reference);
+            return;
+        }
+        try {
+            blobStore.delete(reference.substring(separator + 1));
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Could not delete claim check {}, it is left to expire", reference, e);
+        }
+    }
+}
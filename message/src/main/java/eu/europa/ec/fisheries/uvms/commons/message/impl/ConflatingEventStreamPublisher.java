@@ -0,0 +1,163 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.jms.JMSException;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes to the EventStream topic only the latest event per key (e.g. asset id and event name) of every flush
+ * interval, so that the topic load follows the number of assets instead of their reporting rate. Subscribers that
+ * need every event, not only the latest state, must not be served through a conflating publisher.
+ * <p>
+ * The events are sent with the producer from the thread of the scheduler, in a container a
+ * ManagedScheduledExecutorService, and are dropped with a warning if the send fails. No request scope or transaction
+ * is active on that thread, so the container injected {@code JMSContext} of the producer can not be used there (its
+ * use fails with a ContextNotActiveException): the producer must override {@link AbstractTopicProducer#getContext()}
+ * with an application managed context, created from a non XA connection factory.
+ */
+public class ConflatingEventStreamPublisher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConflatingEventStreamPublisher.class);
+
+    private final AbstractTopicProducer producer;
+    private final long timeToLiveInMillis;
+    private final ConcurrentMap<String, PendingEvent> pending = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final ScheduledFuture<?> flushTask;
+
+    /**
+     * @param producer the producer of the EventStream topic
+     * @param scheduler the scheduler running the flushes
+     * @param flushIntervalInMillis how often the latest events are sent
+     * @param timeToLiveInMillis the time to live of the sent events, usually about the flush interval since a newer
+     *                           event follows
+     */
+    public ConflatingEventStreamPublisher(AbstractTopicProducer producer, ScheduledExecutorService scheduler, long flushIntervalInMillis, long timeToLiveInMillis) {
+        this.producer = producer;
+        this.timeToLiveInMillis = timeToLiveInMillis;
+        this.flushTask = scheduler.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalInMillis, flushIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an event addressed with a JSON subscriber list, replacing the pending event of the same key.
+     */
+    public void publish(String key, String data, String eventName, String subscriberListJson, String movementSource) {
+        enqueue(key, new PendingEvent(data, eventName, false, subscriberListJson, null, movementSource));
+    }
+
+    /**
+     * Queues an event addressed with {@link EventStreamSubscribers}, replacing the pending event of the same key.
+     *
+     * @param subscribers the ids of the subscribers, null or empty for a broadcast
+     */
+    public void publishFiltered(String key, String data, String eventName, Collection<String> subscribers, String movementSource) {
+        enqueue(key, new PendingEvent(data, eventName, true, null, subscribers, movementSource));
+    }
+
+    private void enqueue(String key, PendingEvent event) {
+        published.increment();
+        if (pending.put(key, event) != null) {
+            conflated.increment();
+        }
+    }
+
+    /**
+     * Sends the pending events, called by the scheduler.
+     */
+    public void flush() {
+        for (String key : pending.keySet()) {
+            PendingEvent event = pending.remove(key);
+            if (event == null) {
+                continue;
+            }
+            try {
+                if (event.filtered) {
+                    producer.sendFilteredMessageToEventStream(event.data, event.eventName, event.subscribers, event.movementSource, timeToLiveInMillis);
+                } else {
+                    producer.sendMessageToEventStream(event.data, event.eventName, event.subscriberListJson, event.movementSource, timeToLiveInMillis);
+                }
+                sent.increment();
+            } catch (JMSException | RuntimeException e) {
+                LOGGER.warn("Could not send event {} of {} to the event stream", event.eventName, key, e);
+            }
+        }
+    }
+
+    /*
+     * An exception escaping the task would make the scheduler cancel all later flushes.
+     */
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Flush of the event stream failed", e);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return the number of events replaced by a newer event of the same key before being sent
+     */
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * Stops the flushes and sends the pending events.
+     */
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        flush();
+    }
+
+    private static final class PendingEvent {
+
+        private final String data;
+        private final String eventName;
+        private final boolean filtered;
+        private final String subscriberListJson;
+        private final Collection<String> subscribers;
+        private final String movementSource;
+
+        private PendingEvent(String data, String eventName, boolean filtered, String subscriberListJson, Collection<String> subscribers, String movementSource) {
+            this.data = data;
+            this.eventName = eventName;
+            this.filtered = filtered;
+            this.subscriberListJson = subscriberListJson;
+            this.subscribers = subscribers;
+            this.movementSource = movementSource;
+        }
+    }
+}
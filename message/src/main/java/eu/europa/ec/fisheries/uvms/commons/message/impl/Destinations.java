@@ -0,0 +1,62 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+/**
+ * Names of JMS destinations, for logging, message properties and metrics.
+ */
+final class Destinations {
+
+    /**
+     * The name the metrics of all temporary queues are recorded under, every request/reply exchange over a temporary
+     * reply queue would otherwise add a destination to the metrics for good.
+     */
+    static final String TEMPORARY_QUEUE = "TemporaryQueue";
+
+    static final String TEMPORARY_TOPIC = "TemporaryTopic";
+
+    private Destinations() {
+    }
+
+    static String nameOf(Destination destination) {
+        try {
+            if (destination instanceof Queue) {
+                return ((Queue) destination).getQueueName();
+            }
+            if (destination instanceof Topic) {
+                return ((Topic) destination).getTopicName();
+            }
+        } catch (JMSException e) {
+            // fall through to the generic name
+        }
+        return String.valueOf(destination);
+    }
+
+    /**
+     * @return the name of the destination to record metrics under, temporary destinations share one name
+     */
+    static String metricsNameOf(Destination destination) {
+        if (destination instanceof TemporaryQueue) {
+            return TEMPORARY_QUEUE;
+        }
+        if (destination instanceof TemporaryTopic) {
+            return TEMPORARY_TOPIC;
+        }
+        return nameOf(destination);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Subscriber addressing of the EventStream topic that the broker evaluates: the subscribers of a message are kept in
+ * the {@link MessageConstants#EVENT_STREAM_SUBSCRIBER_IDS} property as {@code ,alice,bob,} (ids URL encoded so they
+ * never contain the delimiter) and a message for everybody has {@link MessageConstants#EVENT_STREAM_BROADCAST} set.
+ * A subscriber consumes with the selector of {@link #selectorFor(String)} and never receives, let alone parses,
+ * the events of others.
+ */
+public final class EventStreamSubscribers {
+
+    private static final char DELIMITER = ',';
+    private static final char LIKE_ESCAPE = '!';
+
+    private EventStreamSubscribers() {
+    }
+
+    /**
+     * @param subscribers the ids of the subscribers, null or empty for a broadcast
+     * @return the value of the {@link MessageConstants#EVENT_STREAM_SUBSCRIBER_IDS} property, null for a broadcast
+     */
+    public static String toProperty(Collection<String> subscribers) {
+        if (subscribers == null || subscribers.isEmpty()) {
+            return null;
+        }
+        StringBuilder property = new StringBuilder().append(DELIMITER);
+        for (String subscriber : subscribers) {
+            property.append(encode(subscriber)).append(DELIMITER);
+        }
+        return property.toString();
+    }
+
+    /**
+     * Sets the subscriber properties of an EventStream message.
+     *
+     * @param subscribers the ids of the subscribers, null or empty for a broadcast
+     */
+    public static void addressTo(Message message, Collection<String> subscribers) throws JMSException {
+        String property = toProperty(subscribers);
+        message.setBooleanProperty(MessageConstants.EVENT_STREAM_BROADCAST, property == null);
+        if (property != null) {
+            message.setStringProperty(MessageConstants.EVENT_STREAM_SUBSCRIBER_IDS, property);
+        }
+    }
+
+    /**
+     * @return the selector matching the broadcasts and the messages addressed to the subscriber
+     */
+    public static String selectorFor(String subscriber) {
+        return "(" + MessageConstants.EVENT_STREAM_BROADCAST + " = TRUE OR " + MessageConstants.EVENT_STREAM_SUBSCRIBER_IDS
+                + " LIKE '%" + DELIMITER + escapeLike(encode(subscriber)) + DELIMITER + "%' ESCAPE '" + LIKE_ESCAPE + "')";
+    }
+
+    /**
+     * @param events the {@link MessageConstants#EVENT_STREAM_EVENT} names the subscriber listens to, all if empty
+     * @return the selector matching the broadcasts and the messages addressed to the subscriber, of the given events
+     */
+    public static String selectorFor(String subscriber, Collection<String> events) {
+        if (events == null || events.isEmpty()) {
+            return selectorFor(subscriber);
+        }
+        StringBuilder selector = new StringBuilder(selectorFor(subscriber))
+                .append(" AND ").append(MessageConstants.EVENT_STREAM_EVENT).append(" IN (");
+        String separator = "";
+        for (String event : events) {
+            selector.append(separator).append('\'').append(event.replace("'", "''")).append('\'');
+            separator = ", ";
+        }
+        return selector.append(')').toString();
+    }
+
+    /**
+     * Tells whether a message is for the subscriber, for consumers that can not use a selector.
+     */
+    public static boolean isAddressedTo(Message message, String subscriber) throws JMSException {
+        if (!message.propertyExists(MessageConstants.EVENT_STREAM_SUBSCRIBER_IDS)) {
+            return true;
+        }
+        String property = message.getStringProperty(MessageConstants.EVENT_STREAM_SUBSCRIBER_IDS);
+        return property == null || property.contains(DELIMITER + encode(subscriber) + DELIMITER);
+    }
+
+    private static String encode(String subscriber) {
+        return URLEncoder.encode(subscriber, StandardCharsets.UTF_8);
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            } else if (c == '\'') {
+                escaped.append('\'');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
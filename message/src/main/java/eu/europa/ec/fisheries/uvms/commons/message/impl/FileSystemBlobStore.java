@@ -0,0 +1,121 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BlobStore} keeping one file per blob in a directory shared by the producing and consuming modules.
+ * Expired blobs are purged at most once per {@link #PURGE_INTERVAL_MILLIS} while putting new blobs.
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSystemBlobStore.class);
+
+    static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String SUFFIX = ".blob";
+
+    private final String id;
+    private final Path directory;
+    private final Duration timeToLive;
+    private volatile long lastPurgeMillis = System.currentTimeMillis();
+
+    /**
+     * @param id the id of the store
+     * @param directory the directory holding the blobs, created if missing
+     * @param timeToLive how long an unconsumed blob is kept
+     */
+    public FileSystemBlobStore(String id, Path directory, Duration timeToLive) throws IOException {
+        this.id = id;
+        this.directory = Files.createDirectories(directory);
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String put(BlobContent content) throws IOException {
+        String blobId = UUID.randomUUID().toString();
+        Path temporary = Files.createTempFile(directory, blobId, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                content.writeTo(out);
+            }
+            Files.move(temporary, pathOf(blobId), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        if (System.currentTimeMillis() - lastPurgeMillis > PURGE_INTERVAL_MILLIS) {
+            purgeExpired();
+        }
+        return blobId;
+    }
+
+    @Override
+    public InputStream open(String blobId) throws IOException {
+        try {
+            return Files.newInputStream(pathOf(blobId));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("No blob " + blobId + " in store " + id);
+        }
+    }
+
+    @Override
+    public void delete(String blobId) throws IOException {
+        Files.deleteIfExists(pathOf(blobId));
+    }
+
+    @Override
+    public int purgeExpired() throws IOException {
+        lastPurgeMillis = System.currentTimeMillis();
+        FileTime expiredBefore = FileTime.fromMillis(lastPurgeMillis - timeToLive.toMillis());
+        int purged = 0;
+        try (DirectoryStream<Path> blobs = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path blob : blobs) {
+                try {
+                    if (Files.getLastModifiedTime(blob).compareTo(expiredBefore) < 0 && Files.deleteIfExists(blob)) {
+                        purged++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // deleted by a consumer meanwhile
+                }
+            }
+        }
+        if (purged > 0) {
+            LOGGER.info("Purged {} expired blobs from {}", purged, directory);
+        }
+        return purged;
+    }
+
+    private Path pathOf(String blobId) {
+        // blob ids are generated UUIDs, anything else could point outside of the directory
+        return directory.resolve(UUID.fromString(blobId) + SUFFIX);
+    }
+}
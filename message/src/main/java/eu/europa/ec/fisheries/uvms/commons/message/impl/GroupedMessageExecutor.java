@@ -0,0 +1,274 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes messages concurrently across message groups ({@link MessageConstants#JMS_MESSAGE_GROUP}, e.g. one group
+ * per asset) while keeping the messages of one group strictly in submission order.
+ * <p>
+ * Each group has its own queue, at most one worker drains a group at a time and hands the worker back after
+ * {@link #TASKS_PER_TURN} messages so that a busy group can not starve the others. Messages without a group are not
+ * ordered. Processing is asynchronous: a message delivered to an MDB is acknowledged when onMessage returns, so
+ * callers needing at-least-once processing acknowledge on completion of the returned future instead.
+ */
+public class GroupedMessageExecutor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupedMessageExecutor.class);
+
+    static final int TASKS_PER_TURN = 16;
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final ConcurrentHashMap<String, GroupQueue> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * @param executor the workers, e.g. the ManagedExecutorService of the container
+     */
+    public GroupedMessageExecutor(Executor executor) {
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    private GroupedMessageExecutor(ExecutorService ownedExecutor) {
+        this.executor = ownedExecutor;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    /**
+     * Creates an executor with its own workers: one virtual thread per task when the JVM supports them, otherwise a
+     * fixed pool of the given size. The workers are shut down by {@link #close()}.
+     *
+     * @param parallelism the number of platform threads if virtual threads are not available
+     */
+    public static GroupedMessageExecutor withOwnWorkers(int parallelism) {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        return new GroupedMessageExecutor(virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(parallelism));
+    }
+
+    /**
+     * Submits a message to the queue of its {@link MessageConstants#JMS_MESSAGE_GROUP}.
+     *
+     * @return the future completed once the handler processed the message
+     */
+    public CompletableFuture<Void> submit(Message message, MessageHandler handler) {
+        String group;
+        try {
+            group = message.getStringProperty(MessageConstants.JMS_MESSAGE_GROUP);
+        } catch (JMSException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return submit(group, () -> handler.handle(message));
+    }
+
+    /**
+     * Submits a task to the queue of the given group, tasks of the same group run one after the other in submission
+     * order. Tasks without a group run as soon as a worker is available.
+     *
+     * @return the future completed once the task ran
+     * @throws RejectedExecutionException if the workers do not accept the task, e.g. once closed, the tasks waiting
+     *             in the queue of the group are then failed with the same exception
+     */
+    public CompletableFuture<Void> submit(String group, MessageTask task) {
+        QueuedTask queuedTask = new QueuedTask(task);
+        if (group == null) {
+            executor.execute(queuedTask);
+            return queuedTask.future;
+        }
+        queued.incrementAndGet();
+        boolean[] schedule = new boolean[1];
+        GroupQueue groupQueue = groups.compute(group, (key, existing) -> {
+            GroupQueue queue = existing != null ? existing : new GroupQueue();
+            queue.tasks.add(queuedTask);
+            queue.depth.incrementAndGet();
+            if (!queue.scheduled) {
+                queue.scheduled = true;
+                schedule[0] = true;
+            }
+            return queue;
+        });
+        if (schedule[0]) {
+            try {
+                executor.execute(() -> drain(group, groupQueue));
+            } catch (RejectedExecutionException e) {
+                reject(group, e);
+                throw e;
+            }
+        }
+        return queuedTask.future;
+    }
+
+    private void drain(String group, GroupQueue groupQueue) {
+        for (int i = 0; i < TASKS_PER_TURN; i++) {
+            QueuedTask task = groupQueue.tasks.poll();
+            if (task == null) {
+                break;
+            }
+            groupQueue.depth.decrementAndGet();
+            queued.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Task of message group {} failed", group, e);
+            }
+        }
+        boolean[] reschedule = new boolean[1];
+        groups.compute(group, (key, queue) -> {
+            if (queue.tasks.isEmpty()) {
+                queue.scheduled = false;
+                return null;
+            }
+            reschedule[0] = true;
+            return queue;
+        });
+        if (reschedule[0]) {
+            try {
+                executor.execute(() -> drain(group, groupQueue));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Workers rejected message group {}, failing its waiting tasks", group, e);
+                reject(group, e);
+            }
+        }
+    }
+
+    /*
+     * Removes the group, whose drain could not be scheduled, and fails its waiting tasks. The next task submitted to
+     * the group schedules a new drain.
+     */
+    private void reject(String group, RejectedExecutionException cause) {
+        List<QueuedTask> rejected = new ArrayList<>();
+        groups.computeIfPresent(group, (key, queue) -> {
+            for (QueuedTask task = queue.tasks.poll(); task != null; task = queue.tasks.poll()) {
+                rejected.add(task);
+                queue.depth.decrementAndGet();
+                queued.decrementAndGet();
+            }
+            queue.scheduled = false;
+            return null;
+        });
+        for (QueuedTask task : rejected) {
+            task.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * @return the number of messages waiting in the queue of the group
+     */
+    public int getQueueDepth(String group) {
+        GroupQueue groupQueue = groups.get(group);
+        return groupQueue == null ? 0 : groupQueue.depth.get();
+    }
+
+    /**
+     * @return the number of waiting messages of every group that has some, sorted by group
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        groups.forEach((group, groupQueue) -> depths.put(group, groupQueue.depth.get()));
+        return depths;
+    }
+
+    /**
+     * @return the number of grouped messages waiting over all groups
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return the number of groups with waiting or running messages
+     */
+    public int getActiveGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * Shuts down the workers created by {@link #withOwnWorkers(int)}, an executor given to the constructor is left
+     * to its owner.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface MessageHandler {
+
+        void handle(Message message) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface MessageTask {
+
+        void run() throws Exception;
+    }
+
+    private static final class QueuedTask implements Runnable {
+
+        private final MessageTask task;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private QueuedTask(MessageTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+                future.complete(null);
+            } catch (Exception | Error e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class GroupQueue {
+
+        private final Queue<QueuedTask> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        // only read and written inside ConcurrentHashMap.compute, which serializes access per group
+        private boolean scheduled;
+    }
+}
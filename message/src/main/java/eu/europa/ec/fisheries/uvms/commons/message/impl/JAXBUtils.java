@@ -12,48 +12,204 @@ copy of the GNU General Public License along with the IFDM Suite. If not, see <h
 
 package eu.europa.ec.fisheries.uvms.commons.message.impl;
 
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetricsRegistry;
+
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import com.sun.xml.bind.marshaller.NamespacePrefixMapper;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class JAXBUtils {
 
-    private static Map<String, JAXBContext> contexts = new HashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(JAXBUtils.class);
+
+    /**
+     * Upper bound of marshallers and unmarshallers kept per thread, the least recently used ones are dropped first.
+     */
+    private static final int MAX_POOLED_PER_THREAD = 32;
+
+    /**
+     * JAXBContexts are thread safe and expensive to create, so one is kept per root class. A {@link ClassValue} is used
+     * instead of a map keyed on the class name so that equally named classes from different deployments never share a
+     * context. The cache itself does not keep the class loader of a root class alive, but the marshallers pooled per
+     * thread (see {@link #clearThreadPool()}) do.
+     */
+    private static final ClassValue<JAXBContext> CONTEXTS = new ClassValue<JAXBContext>() {
+        @Override
+        protected JAXBContext computeValue(Class<?> type) {
+            try {
+                return JAXBContext.newInstance(type);
+            } catch (JAXBException e) {
+                throw new ContextCreationException(e);
+            }
+        }
+    };
+
+    /**
+     * Marshallers and unmarshallers are not thread safe but can be reused, so they are pooled per thread. They reference
+     * their JAXBContext, so a pooled marshaller keeps the class loader of its root class reachable until the thread ends
+     * or calls {@link #clearThreadPool()}.
+     */
+    private static final ThreadLocal<Map<Object, Object>> POOL = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                    return size() > MAX_POOLED_PER_THREAD;
+                }
+            });
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
 
     private JAXBUtils() {}
 
-    public static <T> String marshallJaxBObjectToString(final T data, String encoding, boolean formatted, NamespacePrefixMapper prefixMapper) throws JAXBException {
-        JAXBContext jaxbContext = contexts.get(data.getClass().getName());
-        if (jaxbContext == null) {
-            jaxbContext = JAXBContext.newInstance(data.getClass());
-            contexts.put(data.getClass().getName(), jaxbContext);
+    /**
+     * Returns the cached JAXBContext for the given root class, creating it on first use.
+     *
+     * @param clazz the root class
+     * @return the JAXBContext bound to the root class
+     * @throws JAXBException if the context can not be created
+     */
+    public static JAXBContext getJAXBContext(Class<?> clazz) throws JAXBException {
+        try {
+            return CONTEXTS.get(clazz);
+        } catch (ContextCreationException e) {
+            throw e.getCause();
         }
+    }
 
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        if (StringUtils.isNotEmpty(encoding)){
-            marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+    /**
+     * Eagerly creates the JAXBContexts of the given root classes, typically called from a startup bean so that the
+     * first message of a large schema (FLUX, exchange) does not pay for the context creation.
+     * A class that fails is logged and skipped so that it can not block the deployment.
+     *
+     * @param rootClasses the root classes to create contexts for
+     */
+    public static void warmUp(Class<?>... rootClasses) {
+        for (Class<?> rootClass : rootClasses) {
+            long start = System.currentTimeMillis();
+            try {
+                getJAXBContext(rootClass);
+                LOGGER.info("Created JAXBContext for {} in {} ms", rootClass.getName(), System.currentTimeMillis() - start);
+            } catch (JAXBException e) {
+                LOGGER.warn("Could not create JAXBContext for {}", rootClass.getName(), e);
+            }
         }
-        if (formatted){
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+    }
+
+    /**
+     * Eagerly creates the JAXBContexts of the configured root class names, resolved with the given class loader.
+     *
+     * @param classLoader the class loader of the deployment that owns the classes
+     * @param rootClassNames fully qualified names of the root classes
+     */
+    public static void warmUp(ClassLoader classLoader, String... rootClassNames) {
+        for (String rootClassName : rootClassNames) {
+            if (StringUtils.isBlank(rootClassName)) {
+                continue;
+            }
+            try {
+                warmUp(Class.forName(rootClassName.trim(), false, classLoader));
+            } catch (ClassNotFoundException e) {
+                LOGGER.warn("Could not warm up JAXBContext, class {} not found", rootClassName);
+            }
+        }
+    }
+
+    /**
+     * Drops the marshallers, unmarshallers and {@link MarshallingBuffer} pooled for the current thread. Container
+     * threads outlive deployments, so a deployment that is undeployed or redeployed while the application server keeps
+     * running should call this at the end of the work it runs on shared threads (e.g. from a finally block or an
+     * interceptor), otherwise the pools of those threads keep its class loader reachable. Only the current thread is
+     * cleared, the pools of other threads can not be reached from here.
+     */
+    public static void clearThreadPool() {
+        POOL.remove();
+        MarshallingBuffer.clearCurrentThread();
+    }
+
+    public static <T> String marshallJaxBObjectToString(final T data, String encoding, boolean formatted, NamespacePrefixMapper prefixMapper) throws JAXBException {
+        MarshallerKey key = new MarshallerKey(data.getClass(), encoding, formatted, prefixMapper);
+        Marshaller marshaller = borrowMarshaller(key);
+        long start = System.nanoTime();
+        try {
+            StringWriter sw = new StringWriter();
+            marshaller.marshal(data, sw);
+            return sw.toString();
+        } finally {
+            POOL.get().put(key, marshaller);
+            MessagingMetricsRegistry.get().marshalled(key.type, System.nanoTime() - start);
         }
-        if (prefixMapper != null){
-            marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", prefixMapper);
+    }
+
+    /**
+     * Marshalls a JAXB Object as UTF-8 encoded XML straight into the given stream.
+     *
+     * @param <T>
+     * @param data the object to marshall
+     * @param out the stream to write to, it is not closed
+     * @param formatted whether the output is indented
+     * @param prefixMapper optional namespace prefix mapper
+     * @throws JAXBException
+     */
+    public static <T> void marshallJaxBObjectToStream(final T data, OutputStream out, boolean formatted, NamespacePrefixMapper prefixMapper) throws JAXBException {
+        MarshallerKey key = new MarshallerKey(data.getClass(), StandardCharsets.UTF_8.name(), formatted, prefixMapper);
+        Marshaller marshaller = borrowMarshaller(key);
+        long start = System.nanoTime();
+        try {
+            marshaller.marshal(data, out);
+        } finally {
+            POOL.get().put(key, marshaller);
+            MessagingMetricsRegistry.get().marshalled(key.type, System.nanoTime() - start);
         }
-        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-        StringWriter sw = new StringWriter();
-        marshaller.marshal(data, sw);
-        return sw.toString();
     }
+
+    /**
+     * Marshalls a JAXB Object as unformatted UTF-8 encoded XML straight into the given stream.
+     *
+     * @param <T>
+     * @param data the object to marshall
+     * @param out the stream to write to, it is not closed
+     * @throws JAXBException
+     */
+    public static <T> void marshallJaxBObjectToStream(final T data, OutputStream out) throws JAXBException {
+        marshallJaxBObjectToStream(data, out, false, null);
+    }
+
+    /**
+     * Marshalls a JAXB Object as unformatted UTF-8 encoded XML into the reusable buffer of the current thread.
+     * The buffer is only valid until the next call on the same thread.
+     *
+     * @param <T>
+     * @param data the object to marshall
+     * @return the buffer holding the XML
+     * @throws JAXBException
+     */
+    public static <T> MarshallingBuffer marshallJaxBObjectToBuffer(final T data) throws JAXBException {
+        MarshallingBuffer buffer = MarshallingBuffer.forCurrentThread();
+        marshallJaxBObjectToStream(data, buffer);
+        return buffer;
+    }
+
         /**
          * Marshalls a JAXB Object to a XML String representation.
          *
@@ -98,18 +254,235 @@ public class JAXBUtils {
         if (textMessage != null){
             textMessage = textMessage.trim();
         }
-        JAXBContext jc = contexts.get(clazz.getName());
-        if (jc == null) {
-            jc = JAXBContext.newInstance(clazz);
-            contexts.put(clazz.getName(), jc);
+        Unmarshaller unmarshaller = borrowUnmarshaller(clazz, schema);
+        long start = System.nanoTime();
+        try {
+            StringReader sr = new StringReader(textMessage);
+            StreamSource source = new StreamSource(sr);
+            return (R) unmarshaller.unmarshal(source);
+        } finally {
+            POOL.get().put(clazz, unmarshaller);
+            MessagingMetricsRegistry.get().unmarshalled(clazz, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Unmarshalls a textMessage to the desired Object, validating it against the xsd files compiled and cached by
+     * {@link SchemaRegistry} when the current {@link ValidationMode} selects the message for validation.
+     *
+     * @param <R>
+     * @param textMessage the XML message
+     * @param clazz the root class
+     * @param xsdLocations classpath locations of the xsd files
+     * @return the unmarshalled object
+     * @throws JAXBException
+     */
+    public static <R> R unMarshallAndValidateMessage(String textMessage, Class clazz, String... xsdLocations) throws JAXBException {
+        Schema schema = SchemaRegistry.shouldValidate() ? SchemaRegistry.getSchema(clazz, xsdLocations) : null;
+        return unMarshallMessage(textMessage, clazz, schema);
+    }
+
+    /**
+     * Unmarshalls a XML stream to the desired Object, the encoding is taken from the XML declaration (UTF-8 by default).
+     * The object must be the root object of the unmarshalled message.
+     *
+     * @param <R>
+     * @param inputStream the XML stream, it is not closed
+     * @param clazz the root class
+     * @param schema optional xsd schema to validate against
+     * @return the unmarshalled object
+     * @throws JAXBException
+     */
+    public static <R> R unMarshallMessage(InputStream inputStream, Class clazz, Schema schema) throws JAXBException {
+        Unmarshaller unmarshaller = borrowUnmarshaller(clazz, schema);
+        long start = System.nanoTime();
+        try {
+            return (R) unmarshaller.unmarshal(new StreamSource(inputStream));
+        } finally {
+            POOL.get().put(clazz, unmarshaller);
+            MessagingMetricsRegistry.get().unmarshalled(clazz, System.nanoTime() - start);
+        }
+    }
+
+    public static <R> R unMarshallMessage(InputStream inputStream, Class clazz) throws JAXBException {
+        return unMarshallMessage(inputStream, clazz, null);
+    }
+
+    /**
+     * Unmarshalls a single element of a message and stops reading there, so that a routing decision (method, header)
+     * does not require parsing the whole payload.
+     * The path holds the local names of the elements to descend into below the root element, e.g. {@code "method"} for
+     * a direct child of the root. Without a path the first child element of the root is unmarshalled.
+     *
+     * @param <R>
+     * @param textMessage the XML message
+     * @param clazz the type of the target element
+     * @param path local names leading from the root element to the target element
+     * @return the unmarshalled element, or null if the message does not contain it
+     * @throws JAXBException
+     */
+    public static <R> R peekElement(String textMessage, Class<R> clazz, String... path) throws JAXBException {
+        return peekElement(new StringReader(textMessage.trim()), clazz, path);
+    }
+
+    /**
+     * @see #peekElement(String, Class, String...)
+     */
+    public static <R> R peekElement(InputStream inputStream, Class<R> clazz, String... path) throws JAXBException {
+        try {
+            return peekElement(XML_INPUT_FACTORY.createXMLStreamReader(inputStream), clazz, path);
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Could not read message", e);
+        }
+    }
+
+    private static <R> R peekElement(Reader reader, Class<R> clazz, String... path) throws JAXBException {
+        try {
+            return peekElement(XML_INPUT_FACTORY.createXMLStreamReader(reader), clazz, path);
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Could not read message", e);
+        }
+    }
+
+    private static <R> R peekElement(XMLStreamReader reader, Class<R> clazz, String... path) throws JAXBException {
+        try {
+            reader.nextTag();
+            if (path.length == 0) {
+                if (!moveToChild(reader, null)) {
+                    return null;
+                }
+            }
+            for (String localName : path) {
+                if (!moveToChild(reader, localName)) {
+                    return null;
+                }
+            }
+            Unmarshaller unmarshaller = borrowUnmarshaller(clazz, null);
+            try {
+                return unmarshaller.unmarshal(reader, clazz).getValue();
+            } finally {
+                POOL.get().put(clazz, unmarshaller);
+            }
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Could not read message", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                LOGGER.debug("Could not close XML reader", e);
+            }
+        }
+    }
+
+    /*
+     * Moves from the current start element to its first child element with the given local name (any name if null),
+     * skipping the subtrees of other children. Returns false when the current element ends without such a child.
+     */
+    private static boolean moveToChild(XMLStreamReader reader, String localName) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (localName == null || localName.equals(reader.getLocalName())) {
+                    return true;
+                }
+                skipElement(reader);
+            }
+        }
+        return false;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /*
+     * Pooled instances are removed from the pool while in use and put back afterwards, so a nested call on the same
+     * thread (e.g. from an XmlAdapter) gets its own instance instead of sharing one that is in the middle of a call.
+     */
+    private static Marshaller borrowMarshaller(MarshallerKey key) throws JAXBException {
+        Marshaller marshaller = (Marshaller) POOL.get().remove(key);
+        if (marshaller != null) {
+            return marshaller;
+        }
+        marshaller = getJAXBContext(key.type).createMarshaller();
+        if (StringUtils.isNotEmpty(key.encoding)){
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, key.encoding);
+        }
+        if (key.formatted){
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        }
+        if (key.prefixMapper != null){
+            marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", key.prefixMapper);
+        }
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        return marshaller;
+    }
+
+    private static Unmarshaller borrowUnmarshaller(Class<?> clazz, Schema schema) throws JAXBException {
+        Unmarshaller unmarshaller = (Unmarshaller) POOL.get().remove(clazz);
+        if (unmarshaller == null) {
+            unmarshaller = getJAXBContext(clazz).createUnmarshaller();
+        }
+        unmarshaller.setSchema(schema);
+        return unmarshaller;
+    }
+
+    private static final class MarshallerKey {
+
+        private final Class<?> type;
+        private final String encoding;
+        private final boolean formatted;
+        private final NamespacePrefixMapper prefixMapper;
+
+        private MarshallerKey(Class<?> type, String encoding, boolean formatted, NamespacePrefixMapper prefixMapper) {
+            this.type = type;
+            this.encoding = encoding;
+            this.formatted = formatted;
+            this.prefixMapper = prefixMapper;
         }
-        Unmarshaller unmarshaller = jc.createUnmarshaller();
-        if (schema != null){
-            unmarshaller.setSchema(schema);
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MarshallerKey that = (MarshallerKey) o;
+            return type == that.type && formatted == that.formatted && prefixMapper == that.prefixMapper
+                    && Objects.equals(encoding, that.encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, encoding, formatted, System.identityHashCode(prefixMapper));
         }
-        StringReader sr = new StringReader(textMessage);
-        StreamSource source = new StreamSource(sr);
-        return  (R) unmarshaller.unmarshal(source);
     }
 
+    private static final class ContextCreationException extends RuntimeException {
+
+        private ContextCreationException(JAXBException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized JAXBException getCause() {
+            return (JAXBException) super.getCause();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * UTF-8 XML through {@link JAXBUtils}, for JAXB root elements.
+ */
+class JaxbPayloadCodec implements PayloadCodec {
+
+    static final String CONTENT_TYPE = "application/xml";
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return type.isAnnotationPresent(XmlRootElement.class);
+    }
+
+    @Override
+    public void encode(Object payload, OutputStream out) throws IOException {
+        try {
+            JAXBUtils.marshallJaxBObjectToStream(payload, out);
+        } catch (JAXBException e) {
+            throw new IOException("Could not marshall " + payload.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public <T> T decode(InputStream in, Class<T> type) throws IOException {
+        try {
+            return JAXBUtils.unMarshallMessage(in, type);
+        } catch (JAXBException e) {
+            throw new IOException("Could not unmarshall " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.date.JsonBConfigurator;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * UTF-8 JSON through the JSON-B configuration of {@link JsonBConfigurator}, for any bean.
+ */
+class JsonbPayloadCodec implements PayloadCodec {
+
+    static final String CONTENT_TYPE = "application/json";
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public boolean supports(Class<?> type) {
+        return true;
+    }
+
+    @Override
+    public void encode(Object payload, OutputStream out) throws IOException {
+        try {
+            JsonbHolder.JSONB.toJson(payload, out);
+        } catch (JsonbException e) {
+            throw new IOException("Could not write " + payload.getClass().getName() + " as JSON", e);
+        }
+    }
+
+    @Override
+    public <T> T decode(InputStream in, Class<T> type) throws IOException {
+        try {
+            return JsonbHolder.JSONB.fromJson(in, type);
+        } catch (JsonbException e) {
+            throw new IOException("Could not read " + type.getName() + " from JSON", e);
+        }
+    }
+
+    /*
+     * Builds the thread safe Jsonb once, on first use, since building it is expensive and the JSON-B implementation
+     * is only needed by the applications using this codec.
+     */
+    private static final class JsonbHolder {
+
+        private static final Jsonb JSONB = new JsonBConfigurator().getContext(null);
+    }
+}
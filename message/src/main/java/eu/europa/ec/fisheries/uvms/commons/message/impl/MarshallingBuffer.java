@@ -0,0 +1,57 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A byte buffer that is reused by the current thread for marshalling outgoing messages, so that the bytes can be handed
+ * to the message without the intermediate String and array copies.
+ * Buffers that grew larger than {@link #MAX_RETAINED_SIZE} are not kept for the next message.
+ */
+public final class MarshallingBuffer extends ByteArrayOutputStream {
+
+    static final int INITIAL_SIZE = 8 * 1024;
+    static final int MAX_RETAINED_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<MarshallingBuffer> BUFFERS = ThreadLocal.withInitial(MarshallingBuffer::new);
+
+    private MarshallingBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * @return the empty buffer of the current thread
+     */
+    public static MarshallingBuffer forCurrentThread() {
+        MarshallingBuffer buffer = BUFFERS.get();
+        if (buffer.buf.length > MAX_RETAINED_SIZE) {
+            buffer = new MarshallingBuffer();
+            BUFFERS.set(buffer);
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    /**
+     * Drops the buffer of the current thread, see {@link JAXBUtils#clearThreadPool()}.
+     */
+    static void clearCurrentThread() {
+        BUFFERS.remove();
+    }
+
+    /**
+     * @return the internal array, only the first {@link #size()} bytes are valid
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+}
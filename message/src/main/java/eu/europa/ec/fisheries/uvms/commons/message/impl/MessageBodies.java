@@ -0,0 +1,289 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.ObjectMessage;
+import javax.jms.TextMessage;
+import javax.xml.bind.JAXBException;
+import javax.xml.validation.Schema;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+/**
+ * Creates and reads the payload of text and bytes messages, bytes messages are expected to carry UTF-8 encoded text,
+ * compressed if the {@link MessageConstants#JMS_CONTENT_ENCODING} property is set. Messages with a
+ * {@link MessageConstants#JMS_CLAIM_CHECK} property are resolved through their {@link ClaimCheck}.
+ */
+public final class MessageBodies {
+
+    private MessageBodies() {}
+
+    /**
+     * @param message a text or bytes message
+     * @return the payload as a stream, bytes messages are streamed without being copied into a String
+     * @throws JMSException if the message is of another type or the body can not be read
+     */
+    public static InputStream openStream(Message message) throws JMSException {
+        String claimCheck = message.getStringProperty(MessageConstants.JMS_CLAIM_CHECK);
+        if (claimCheck != null) {
+            try {
+                return ClaimCheck.open(claimCheck);
+            } catch (IOException | IllegalArgumentException e) {
+                throw toJMSException("Could not resolve claim check " + claimCheck, e);
+            }
+        }
+        if (message instanceof BytesMessage) {
+            InputStream in = new BytesMessageInputStream((BytesMessage) message);
+            String contentEncoding = message.getStringProperty(MessageConstants.JMS_CONTENT_ENCODING);
+            if (contentEncoding == null) {
+                return in;
+            }
+            try {
+                return CompressionCodec.forContentEncoding(contentEncoding).decompress(in);
+            } catch (IOException | IllegalArgumentException e) {
+                throw toJMSException("Could not decompress message body", e);
+            }
+        }
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            return new ByteArrayInputStream(text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8));
+        }
+        throw new MessageFormatException("Unsupported message type " + message.getClass().getName());
+    }
+
+    /**
+     * @param message a text or bytes message
+     * @return the payload as a String
+     * @throws JMSException if the message is of another type or the body can not be read
+     */
+    public static String readText(Message message) throws JMSException {
+        if (message instanceof TextMessage && !message.propertyExists(MessageConstants.JMS_CLAIM_CHECK)) {
+            return ((TextMessage) message).getText();
+        }
+        if (message.propertyExists(MessageConstants.JMS_CLAIM_CHECK)
+                || message instanceof BytesMessage && message.propertyExists(MessageConstants.JMS_CONTENT_ENCODING)) {
+            try (Reader reader = new InputStreamReader(openStream(message), StandardCharsets.UTF_8)) {
+                StringWriter text = new StringWriter();
+                reader.transferTo(text);
+                return text.toString();
+            } catch (IOException e) {
+                throw toJMSException("Could not read message body", e);
+            }
+        }
+        if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            bytesMessage.reset();
+            byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        throw new MessageFormatException("Unsupported message type " + message.getClass().getName());
+    }
+
+    /**
+     * Unmarshalls the payload of a text or bytes message, bytes messages are parsed straight from the message body.
+     *
+     * @param message a text or bytes message
+     * @param clazz the root class of the payload
+     * @param schema optional schema to validate against
+     * @return the unmarshalled payload
+     * @throws JMSException if the body can not be read or unmarshalled
+     */
+    public static <R> R unMarshall(Message message, Class<R> clazz, Schema schema) throws JMSException {
+        try {
+            if (message instanceof TextMessage && !message.propertyExists(MessageConstants.JMS_CLAIM_CHECK)) {
+                return JAXBUtils.unMarshallMessage(((TextMessage) message).getText(), clazz, schema);
+            }
+            try (InputStream in = openStream(message)) {
+                return JAXBUtils.unMarshallMessage(in, clazz, schema);
+            }
+        } catch (JAXBException | IOException e) {
+            throw toJMSException("Could not unmarshall message body to " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Creates a text message, or a compressed bytes message if the compression applies to the text.
+     *
+     * @param context the context to create the message with
+     * @param text the payload
+     * @param compression the compression settings of the producer
+     * @return the message holding the payload
+     * @throws JMSException if the payload can not be compressed
+     */
+    public static Message createMessage(JMSContext context, String text, PayloadCompression compression) throws JMSException {
+        return createMessage(context, text, compression, ClaimCheck.DISABLED);
+    }
+
+    /**
+     * Creates an empty message referencing the payload in the blob store if the claim check applies to the text,
+     * otherwise a text message or a compressed bytes message if the compression applies to the text.
+     *
+     * @param context the context to create the message with
+     * @param text the payload
+     * @param compression the compression settings of the producer
+     * @param claimCheck the claim check settings of the producer
+     * @return the message holding the payload
+     * @throws JMSException if the payload can not be compressed or stored
+     */
+    public static Message createMessage(JMSContext context, String text, PayloadCompression compression, ClaimCheck claimCheck) throws JMSException {
+        if (claimCheck.appliesTo(text)) {
+            try {
+                TextMessage message = context.createTextMessage();
+                message.setStringProperty(MessageConstants.JMS_CLAIM_CHECK, claimCheck.store(text));
+                return message;
+            } catch (IOException e) {
+                throw toJMSException("Could not store message body", e);
+            }
+        }
+        if (!compression.appliesTo(text)) {
+            return context.createTextMessage(text);
+        }
+        MarshallingBuffer buffer = MarshallingBuffer.forCurrentThread();
+        try (OutputStream compressed = compression.getCodec().compress(buffer);
+             Writer writer = new OutputStreamWriter(compressed, StandardCharsets.UTF_8)) {
+            writer.write(text);
+        } catch (IOException e) {
+            throw toJMSException("Could not compress message body", e);
+        }
+        BytesMessage message = context.createBytesMessage();
+        message.writeBytes(buffer.getBuffer(), 0, buffer.size());
+        message.setStringProperty(MessageConstants.JMS_CONTENT_ENCODING, compression.getCodec().getContentEncoding());
+        return message;
+    }
+
+    /**
+     * Creates a bytes message holding the payload encoded by the codec, with the content type of the codec.
+     *
+     * @param context the context to create the message with
+     * @param payload the payload
+     * @param codec the codec writing the payload
+     * @return the message holding the payload
+     * @throws JMSException if the payload can not be encoded
+     */
+    public static BytesMessage createMessage(JMSContext context, Object payload, PayloadCodec codec) throws JMSException {
+        MarshallingBuffer buffer = MarshallingBuffer.forCurrentThread();
+        try {
+            codec.encode(payload, buffer);
+        } catch (IOException e) {
+            throw toJMSException("Could not encode message body as " + codec.getContentType(), e);
+        }
+        BytesMessage message = context.createBytesMessage();
+        message.writeBytes(buffer.getBuffer(), 0, buffer.size());
+        message.setStringProperty(MessageConstants.JMS_CONTENT_TYPE, codec.getContentType());
+        return message;
+    }
+
+    /**
+     * Decodes the payload with the codec of the {@link MessageConstants#JMS_CONTENT_TYPE} of the message, messages
+     * without content type are unmarshalled as XML.
+     *
+     * @param message a text or bytes message
+     * @param type the type of the payload
+     * @return the payload
+     * @throws JMSException if the content type is unknown or the body can not be read or decoded
+     */
+    public static <T> T decode(Message message, Class<T> type) throws JMSException {
+        String contentType = message.getStringProperty(MessageConstants.JMS_CONTENT_TYPE);
+        if (contentType == null) {
+            return unMarshall(message, type, null);
+        }
+        PayloadCodec codec;
+        try {
+            codec = PayloadCodecs.forContentType(contentType);
+        } catch (IllegalArgumentException e) {
+            throw toJMSException("Could not decode message body", e);
+        }
+        try (InputStream in = openStream(message)) {
+            return codec.decode(in, type);
+        } catch (IOException e) {
+            throw toJMSException("Could not decode message body to " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Copies the body, the properties and the correlation headers of a received message into a new message, e.g. to
+     * send it again. Provider set JMSX properties other than the message group are left out.
+     *
+     * @param context the context to create the copy with
+     * @param message a text, bytes or object message
+     * @return the copy
+     * @throws JMSException if the message type is not supported
+     */
+    public static Message copy(JMSContext context, Message message) throws JMSException {
+        Message copy;
+        if (message instanceof TextMessage) {
+            copy = context.createTextMessage(((TextMessage) message).getText());
+        } else if (message instanceof BytesMessage) {
+            copy = context.createBytesMessage();
+            ((BytesMessage) copy).writeBytes(message.getBody(byte[].class));
+        } else if (message instanceof ObjectMessage) {
+            copy = context.createObjectMessage(((ObjectMessage) message).getObject());
+        } else {
+            throw new JMSException("Can not copy message of type " + message.getClass().getName());
+        }
+        Enumeration<?> names = message.getPropertyNames();
+        while (names.hasMoreElements()) {
+            String name = (String) names.nextElement();
+            if (!name.startsWith("JMSX") || name.equals(MessageConstants.JMS_MESSAGE_GROUP)
+                    || name.equals(MessageConstants.JMS_MESSAGE_GROUP_ORDERING)) {
+                copy.setObjectProperty(name, message.getObjectProperty(name));
+            }
+        }
+        copy.setJMSCorrelationID(message.getJMSCorrelationID());
+        copy.setJMSReplyTo(message.getJMSReplyTo());
+        copy.setJMSType(message.getJMSType());
+        return copy;
+    }
+
+    /**
+     * @return the payload size of the message, characters for text messages and bytes for bytes messages (resetting a
+     * bytes message being written), -1 if unknown
+     */
+    static long payloadSize(Message message) {
+        try {
+            if (message instanceof TextMessage) {
+                String text = ((TextMessage) message).getText();
+                return text == null ? 0 : text.length();
+            }
+            if (message instanceof BytesMessage) {
+                ((BytesMessage) message).reset();
+                return ((BytesMessage) message).getBodyLength();
+            }
+        } catch (JMSException e) {
+            // unknown size
+        }
+        return -1;
+    }
+
+    private static JMSException toJMSException(String reason, Exception cause) {
+        JMSException jmsException = new JMSException(reason + ": " + cause.getMessage());
+        jmsException.setLinkedException(cause);
+        jmsException.initCause(cause);
+        return jmsException;
+    }
+}
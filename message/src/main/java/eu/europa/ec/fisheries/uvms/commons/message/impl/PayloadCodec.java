@@ -0,0 +1,45 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Serializes the payloads of the typed send and receive methods. The content type of the codec travels in the
+ * {@link eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants#JMS_CONTENT_TYPE} property so that the
+ * receiver picks the same codec from {@link PayloadCodecs}. Implementations must be thread safe.
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return the content type identifying the codec, e.g. {@code application/xml}
+     */
+    String getContentType();
+
+    /**
+     * @return whether payloads of the type can be encoded and decoded, see {@link PayloadCodecs#forType(Class, PayloadCodec)}
+     */
+    boolean supports(Class<?> type);
+
+    /**
+     * @param payload the payload to write
+     * @param out the stream to write to, it is not closed
+     */
+    void encode(Object payload, OutputStream out) throws IOException;
+
+    /**
+     * @param in the stream to read from, it is not closed
+     * @param type the type of the payload
+     */
+    <T> T decode(InputStream in, Class<T> type) throws IOException;
+}
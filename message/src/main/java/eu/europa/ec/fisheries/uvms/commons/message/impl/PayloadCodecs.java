@@ -0,0 +1,82 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link PayloadCodec}s known to the receivers, by content type. Messages without content type are XML.
+ */
+public final class PayloadCodecs {
+
+    public static final PayloadCodec JAXB = new JaxbPayloadCodec();
+    public static final PayloadCodec JSON = new JsonbPayloadCodec();
+    public static final PayloadCodec BINARY = new BinaryPayloadCodec();
+
+    private static final Map<String, PayloadCodec> CODECS = new ConcurrentHashMap<>();
+
+    private static final String[] FALLBACK_CONTENT_TYPES = {BINARY.getContentType(), JAXB.getContentType(), JSON.getContentType()};
+
+    static {
+        register(JAXB);
+        register(JSON);
+        register(BINARY);
+    }
+
+    private PayloadCodecs() {
+    }
+
+    /**
+     * Registers a codec, replacing the codec of the same content type.
+     */
+    public static void register(PayloadCodec codec) {
+        CODECS.put(codec.getContentType(), codec);
+    }
+
+    /**
+     * Picks the codec to send a payload with: the preferred codec of the producer if it supports the type of the
+     * payload, otherwise the first of the binary, XML and JSON codecs that does. The receiver decodes by content type,
+     * so it only needs to know the chosen codec.
+     *
+     * @param type the type of the payload
+     * @param preferred the codec of the producer
+     * @return the codec supporting the type, the preferred codec if none does
+     */
+    public static PayloadCodec forType(Class<?> type, PayloadCodec preferred) {
+        if (preferred.supports(type)) {
+            return preferred;
+        }
+        for (String contentType : FALLBACK_CONTENT_TYPES) {
+            PayloadCodec codec = CODECS.get(contentType);
+            if (codec != null && codec.supports(type)) {
+                return codec;
+            }
+        }
+        return preferred;
+    }
+
+    /**
+     * @param contentType the content type of a message, null for XML
+     * @return the codec of the content type
+     * @throws IllegalArgumentException if no codec is registered for the content type
+     */
+    public static PayloadCodec forContentType(String contentType) {
+        if (contentType == null) {
+            return JAXB;
+        }
+        PayloadCodec codec = CODECS.get(contentType);
+        if (codec == null) {
+            throw new IllegalArgumentException("No payload codec for content type " + contentType);
+        }
+        return codec;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+/**
+ * Opt-in compression of outgoing text payloads: payloads of at least {@link #getThreshold()} characters are compressed
+ * with the codec and sent as a {@link javax.jms.BytesMessage}. Consumers must read the payload through
+ * {@link MessageBodies} (as {@link AbstractConsumer} does) to get it decompressed.
+ */
+public final class PayloadCompression {
+
+    public static final PayloadCompression DISABLED = new PayloadCompression(null, Integer.MAX_VALUE);
+
+    private final CompressionCodec codec;
+    private final int threshold;
+
+    private PayloadCompression(CompressionCodec codec, int threshold) {
+        this.codec = codec;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param codec the compression codec
+     * @param threshold the minimum payload length in characters to compress
+     */
+    public static PayloadCompression of(CompressionCodec codec, int threshold) {
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec provided!");
+        }
+        return new PayloadCompression(codec, threshold);
+    }
+
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public boolean appliesTo(String text) {
+        return codec != null && text != null && text.length() >= threshold;
+    }
+}
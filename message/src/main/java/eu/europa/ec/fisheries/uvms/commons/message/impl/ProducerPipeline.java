@@ -0,0 +1,132 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetrics;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetricsRegistry;
+
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends messages with {@link JMSProducer}s that are configured once per (destination, delivery mode, time to live)
+ * profile and reused, and records the {@link MessagingMetrics} of every send.
+ * <p>
+ * A container injected {@link JMSContext} is bound to the current transaction, so the producers created from it are
+ * cached in the transaction (through the {@link TransactionSynchronizationRegistry}) and never outlive it. Without a
+ * transaction a new producer is used per send. Without a registry the context is application managed and the
+ * producers are cached for the lifetime of the pipeline, except those of temporary destinations (e.g. the JMSReplyTo
+ * of a request) which would otherwise add a producer per request.
+ */
+public class ProducerPipeline {
+
+    private final JMSContext context;
+    private final TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+    private final Map<ProducerProfile, JMSProducer> applicationManagedProducers = new ConcurrentHashMap<>();
+
+    public ProducerPipeline(JMSContext context, TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+        this.context = context;
+        this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+    }
+
+    public void send(Destination destination, Message message, int deliveryMode, long timeToLiveInMillis) {
+        send(producerFor(new ProducerProfile(destination, deliveryMode, timeToLiveInMillis)), destination, message);
+    }
+
+    /**
+     * Sends a message that the broker delivers only after the given delay. Delays vary per message (e.g. a retry
+     * backoff), so the producer is not cached.
+     */
+    public void sendDelayed(Destination destination, Message message, int deliveryMode, long timeToLiveInMillis, long deliveryDelayInMillis) {
+        JMSProducer producer = createProducer(new ProducerProfile(destination, deliveryMode, timeToLiveInMillis))
+                .setDeliveryDelay(deliveryDelayInMillis);
+        send(producer, destination, message);
+    }
+
+    private void send(JMSProducer producer, Destination destination, Message message) {
+        if (!MessagingMetricsRegistry.isEnabled()) {
+            producer.send(destination, message);
+            return;
+        }
+        MessagingMetrics metrics = MessagingMetricsRegistry.get();
+        String destinationName = Destinations.metricsNameOf(destination);
+        long payloadSize = MessageBodies.payloadSize(message);
+        long start = System.nanoTime();
+        try {
+            producer.send(destination, message);
+        } catch (JMSRuntimeException e) {
+            metrics.sendFailed(destinationName);
+            throw e;
+        }
+        metrics.messageSent(destinationName, payloadSize, System.nanoTime() - start);
+    }
+
+    private JMSProducer producerFor(ProducerProfile profile) {
+        if (transactionSynchronizationRegistry == null) {
+            if (profile.destination instanceof TemporaryQueue || profile.destination instanceof TemporaryTopic) {
+                return createProducer(profile);
+            }
+            return applicationManagedProducers.computeIfAbsent(profile, this::createProducer);
+        }
+        if (transactionSynchronizationRegistry.getTransactionKey() == null) {
+            return createProducer(profile);
+        }
+        @SuppressWarnings("unchecked")
+        Map<ProducerProfile, JMSProducer> producers = (Map<ProducerProfile, JMSProducer>) transactionSynchronizationRegistry.getResource(this);
+        if (producers == null) {
+            producers = new HashMap<>();
+            transactionSynchronizationRegistry.putResource(this, producers);
+        }
+        return producers.computeIfAbsent(profile, this::createProducer);
+    }
+
+    private JMSProducer createProducer(ProducerProfile profile) {
+        return context.createProducer()
+                .setDeliveryMode(profile.deliveryMode)
+                .setTimeToLive(profile.timeToLive);
+    }
+
+    private static final class ProducerProfile {
+
+        private final Destination destination;
+        private final int deliveryMode;
+        private final long timeToLive;
+
+        private ProducerProfile(Destination destination, int deliveryMode, long timeToLive) {
+            this.destination = destination;
+            this.deliveryMode = deliveryMode;
+            this.timeToLive = timeToLive;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ProducerProfile that = (ProducerProfile) o;
+            return deliveryMode == that.deliveryMode && timeToLive == that.timeToLive && Objects.equals(destination, that.destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(destination, deliveryMode, timeToLive);
+        }
+    }
+}
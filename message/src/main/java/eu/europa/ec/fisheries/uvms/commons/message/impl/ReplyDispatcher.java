@@ -0,0 +1,206 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.jms.Destination;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches the replies arriving on one response destination to the callers waiting for them, by correlation id.
+ * <p>
+ * One dispatcher exists per response destination and is fed by a single long lived consumer instead of one selector
+ * based consumer per request. In an EJB container message listeners can not be registered on a JMSContext, so the
+ * module forwards the messages of its response queue MDB to {@link #onMessage(Message)}. With an application managed
+ * context {@link #listen(JMSContext)} registers the dispatcher directly.
+ * Once a response destination is served by a dispatcher, the selector based {@code AbstractConsumer.getMessage} must
+ * no longer be used for it since the dispatcher consumes every reply.
+ * <p>
+ * A reply may arrive before its caller registered (the correlation id is only known once the request is sent), such
+ * replies are kept for {@link #UNCLAIMED_REPLY_TTL_MILLIS} before being dropped.
+ * <p>
+ * Dispatchers live as long as the application unless {@link #close()}d, so temporary destinations are not supported.
+ */
+public class ReplyDispatcher implements MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplyDispatcher.class);
+
+    static final long UNCLAIMED_REPLY_TTL_MILLIS = 60000;
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final ConcurrentMap<String, ReplyDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    private final Destination destination;
+    private final ConcurrentMap<String, CompletableFuture<Message>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, UnclaimedReply> unclaimed = new ConcurrentHashMap<>();
+    private volatile long lastPurgeNanos = System.nanoTime();
+    private volatile boolean replyReceived;
+    private final AtomicBoolean idleTimeoutLogged = new AtomicBoolean();
+
+    ReplyDispatcher(Destination destination) {
+        this.destination = destination;
+    }
+
+    /**
+     * @return the dispatcher of the given response destination, created on first use
+     * @throws IllegalArgumentException if the destination is temporary
+     */
+    public static ReplyDispatcher forDestination(Destination responseDestination) {
+        if (responseDestination instanceof TemporaryQueue || responseDestination instanceof TemporaryTopic) {
+            throw new IllegalArgumentException("Temporary destinations are not supported, their dispatchers would never be released");
+        }
+        return DISPATCHERS.computeIfAbsent(Destinations.nameOf(responseDestination), name -> new ReplyDispatcher(responseDestination));
+    }
+
+    public Destination getDestination() {
+        return destination;
+    }
+
+    /**
+     * Registers the dispatcher as the listener of a new consumer on its destination.
+     * Only allowed on application managed contexts, the caller closes the returned consumer.
+     */
+    public JMSConsumer listen(JMSContext jmsContext) {
+        JMSConsumer consumer = jmsContext.createConsumer(destination);
+        consumer.setMessageListener(this);
+        return consumer;
+    }
+
+    /**
+     * Waits asynchronously for the reply with the given correlation id. The future completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} if no reply arrives in time, cancelling it stops the wait.
+     *
+     * @param correlationId the correlation id of the reply, usually the JMS message id of the request
+     * @param timeoutInMillis how long to wait for the reply
+     * @return the future completed with the reply
+     */
+    public CompletableFuture<Message> register(String correlationId, long timeoutInMillis) {
+        if (correlationId == null || correlationId.isEmpty()) {
+            throw new IllegalArgumentException("No CorrelationID provided!");
+        }
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        if (pending.putIfAbsent(correlationId, future) != null) {
+            throw new IllegalStateException("A caller is already waiting for correlation id " + correlationId);
+        }
+        future.whenComplete((message, failure) -> {
+            pending.remove(correlationId, future);
+            if (failure instanceof TimeoutException && !replyReceived && idleTimeoutLogged.compareAndSet(false, true)) {
+                LOGGER.warn("No reply ever arrived on {}, check that a consumer feeds its reply dispatcher", Destinations.nameOf(destination));
+            }
+        });
+        UnclaimedReply reply = unclaimed.remove(correlationId);
+        if (reply != null) {
+            future.complete(reply.message);
+        } else {
+            future.orTimeout(timeoutInMillis, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Removes the dispatcher, the callers still waiting complete exceptionally with an {@link IllegalStateException}.
+     * The next {@link #forDestination(Destination)} of the destination creates a new dispatcher.
+     */
+    public void close() {
+        DISPATCHERS.remove(Destinations.nameOf(destination), this);
+        IllegalStateException closed = new IllegalStateException("Reply dispatcher of " + Destinations.nameOf(destination) + " closed");
+        pending.values().forEach(future -> future.completeExceptionally(closed));
+        unclaimed.clear();
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        replyReceived = true;
+        String correlationId;
+        try {
+            correlationId = message.getJMSCorrelationID();
+        } catch (JMSException e) {
+            LOGGER.warn("Could not read correlation id of reply, reply dropped", e);
+            return;
+        }
+        if (correlationId == null) {
+            LOGGER.warn("Reply without correlation id dropped");
+            return;
+        }
+        CompletableFuture<Message> future = pending.get(correlationId);
+        if (future != null) {
+            future.complete(message);
+            return;
+        }
+        // the caller may register between the lookup above and here, so check again after parking the reply
+        unclaimed.put(correlationId, new UnclaimedReply(message));
+        future = pending.get(correlationId);
+        if (future != null) {
+            UnclaimedReply reply = unclaimed.remove(correlationId);
+            if (reply != null) {
+                future.complete(reply.message);
+            }
+        }
+        purgeUnclaimedReplies();
+    }
+
+    /**
+     * @return the number of callers waiting for a reply
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of replies that arrived before their caller registered
+     */
+    public int getUnclaimedCount() {
+        return unclaimed.size();
+    }
+
+    private void purgeUnclaimedReplies() {
+        long now = System.nanoTime();
+        if (now - lastPurgeNanos < PURGE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPurgeNanos = now;
+        long expiredBefore = now - TimeUnit.MILLISECONDS.toNanos(UNCLAIMED_REPLY_TTL_MILLIS);
+        Iterator<Map.Entry<String, UnclaimedReply>> iterator = unclaimed.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, UnclaimedReply> entry = iterator.next();
+            if (entry.getValue().arrivedNanos - expiredBefore < 0) {
+                LOGGER.warn("Dropping unclaimed reply with correlation id {}", entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class UnclaimedReply {
+
+        private final Message message;
+        private final long arrivedNanos = System.nanoTime();
+
+        private UnclaimedReply(Message message) {
+            this.message = message;
+        }
+    }
+}
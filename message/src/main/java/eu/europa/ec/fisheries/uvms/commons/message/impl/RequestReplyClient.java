@@ -0,0 +1,131 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetrics;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetricsRegistry;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non blocking request/reply on top of an {@link AbstractProducer} and the {@link ReplyDispatcher} of the reply
+ * destination, so that a caller can send to several modules and wait for all replies concurrently:
+ * <pre>
+ * CompletableFuture&lt;AssetResponse&gt; asset = assetClient.request(assetRequest, null, 5000, AssetResponse.class);
+ * CompletableFuture&lt;MovementResponse&gt; movement = movementClient.request(movementRequest, null, 5000, MovementResponse.class);
+ * CompletableFuture.allOf(asset, movement).join();
+ * </pre>
+ * The number of requests waiting for a reply is bounded, requests above the limit fail immediately with a
+ * {@link RejectedExecutionException}. The request is only delivered when the current transaction commits, so it must
+ * be sent outside of a transaction (or from a producer that does not join it) when the reply is awaited in it.
+ */
+public class RequestReplyClient {
+
+    private final AbstractProducer producer;
+    private final Destination replyTo;
+    private final ReplyDispatcher dispatcher;
+    private final Semaphore inFlight;
+
+    /**
+     * @param producer the producer sending to the destination of the requests
+     * @param replyTo the destination the replies are sent to, its dispatcher must be fed by a consumer
+     * @param maxInFlight the maximum number of requests waiting for a reply at the same time
+     */
+    public RequestReplyClient(AbstractProducer producer, Destination replyTo, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in flight must be positive but was " + maxInFlight);
+        }
+        this.producer = producer;
+        this.replyTo = replyTo;
+        this.dispatcher = ReplyDispatcher.forDestination(replyTo);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Sends the request and returns the future of its reply. The future completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} if no reply arrives in time, cancelling it stops the wait.
+     */
+    public CompletableFuture<Message> request(String text, Map<String, String> props, long timeoutInMillis) {
+        if (!inFlight.tryAcquire()) {
+            CompletableFuture<Message> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Too many requests waiting for a reply on " + Destinations.nameOf(replyTo)));
+            return rejected;
+        }
+        long start = System.nanoTime();
+        try {
+            String messageId = producer.sendModuleMessageWithProps(text, replyTo, props);
+            CompletableFuture<Message> reply = dispatcher.register(messageId, timeoutInMillis);
+            reply.whenComplete((message, failure) -> {
+                inFlight.release();
+                recordReply(message, failure, System.nanoTime() - start);
+            });
+            return reply;
+        } catch (JMSException | JMSRuntimeException | IllegalStateException e) {
+            inFlight.release();
+            CompletableFuture<Message> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private void recordReply(Message reply, Throwable failure, long roundTripNanos) {
+        if (!MessagingMetricsRegistry.isEnabled()) {
+            return;
+        }
+        MessagingMetrics metrics = MessagingMetricsRegistry.get();
+        String destinationName = Destinations.metricsNameOf(replyTo);
+        if (reply != null) {
+            metrics.replyReceived(destinationName, roundTripNanos);
+            metrics.messageReceived(destinationName, MessageBodies.payloadSize(reply));
+        } else if (failure instanceof TimeoutException) {
+            metrics.replyTimedOut(destinationName);
+        }
+    }
+
+    /**
+     * Sends the request and returns the future of its reply unmarshalled to the given JAXB class. The claim checked
+     * payload of the reply, if any, is released once unmarshalled.
+     */
+    public <T> CompletableFuture<T> request(String text, Map<String, String> props, long timeoutInMillis, Class<T> replyClass) {
+        CompletableFuture<Message> reply = request(text, props, timeoutInMillis);
+        CompletableFuture<T> unmarshalled = reply.thenApply(message -> {
+            try {
+                T body = MessageBodies.unMarshall(message, replyClass, null);
+                ClaimCheck.release(message, null);
+                return body;
+            } catch (JMSException e) {
+                throw new CompletionException(e);
+            }
+        });
+        unmarshalled.whenComplete((result, failure) -> {
+            if (unmarshalled.isCancelled()) {
+                reply.cancel(true);
+            }
+        });
+        return unmarshalled;
+    }
+
+    /**
+     * @return the number of requests that can still be sent before the in flight limit is reached
+     */
+    public int getAvailablePermits() {
+        return inFlight.availablePermits();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how a message whose processing failed is handled: sent again after an exponential backoff with jitter, or
+ * parked as poison once it failed {@link #getMaxRedeliveries()} times, was redelivered by the broker that often, or
+ * failed with a cause that is not retryable. The retries are counted in the {@link MessageConstants#JMS_RETRY_COUNT}
+ * property, see {@link AbstractProducer#retryOrPark}.
+ */
+public final class RetryPolicy {
+
+    public enum Outcome {
+        RETRIED, PARKED
+    }
+
+    private static final long DEFAULT_MAX_DELAY = 60_000;
+
+    private static final RetryPolicy DEFAULTS = new RetryPolicy(MessageConstants.JMS_MAX_REDELIVERIES,
+            MessageConstants.JMS_REDELIVERY_DELAY, DEFAULT_MAX_DELAY, Collections.emptyList());
+
+    private final int maxRedeliveries;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final List<Class<? extends Throwable>> nonRetryable;
+
+    private RetryPolicy(int maxRedeliveries, long initialDelay, long maxDelay, List<Class<? extends Throwable>> nonRetryable) {
+        this.maxRedeliveries = maxRedeliveries;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.nonRetryable = nonRetryable;
+    }
+
+    /**
+     * @return {@link MessageConstants#JMS_MAX_REDELIVERIES} retries starting at {@link MessageConstants#JMS_REDELIVERY_DELAY}
+     * milliseconds, doubling up to one minute
+     */
+    public static RetryPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param maxRedeliveries the number of retries before a message is poison
+     * @param initialDelayInMillis the delay before the first retry, doubled for every further retry
+     * @param maxDelayInMillis the upper bound of the delay
+     */
+    public static RetryPolicy of(int maxRedeliveries, long initialDelayInMillis, long maxDelayInMillis) {
+        if (maxRedeliveries < 0 || initialDelayInMillis <= 0 || maxDelayInMillis < initialDelayInMillis) {
+            throw new IllegalArgumentException("Invalid retry policy: " + maxRedeliveries + " retries, "
+                    + initialDelayInMillis + " to " + maxDelayInMillis + " ms");
+        }
+        return new RetryPolicy(maxRedeliveries, initialDelayInMillis, maxDelayInMillis, Collections.emptyList());
+    }
+
+    /**
+     * @return a copy of this policy parking messages failing with one of the given causes (or a subclass) right away
+     */
+    @SafeVarargs
+    public final RetryPolicy withNonRetryable(Class<? extends Throwable>... causes) {
+        return new RetryPolicy(maxRedeliveries, initialDelay, maxDelay, Arrays.asList(causes));
+    }
+
+    public int getMaxRedeliveries() {
+        return maxRedeliveries;
+    }
+
+    /**
+     * @param retryCount the number of retries done so far
+     * @return the delay before the next retry, between half and all of the exponential delay so that messages failing
+     * together are not retried together
+     */
+    public long getDelay(int retryCount) {
+        long delay = initialDelay << Math.min(retryCount, 30);
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    public boolean isRetryable(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            for (Class<? extends Throwable> type : nonRetryable) {
+                if (type.isInstance(t)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the message failed or was redelivered too often to be retried again
+     */
+    public boolean isPoison(Message message) throws JMSException {
+        return getRetryCount(message) >= maxRedeliveries || getDeliveryCount(message) > maxRedeliveries;
+    }
+
+    public static int getRetryCount(Message message) throws JMSException {
+        return message.propertyExists(MessageConstants.JMS_RETRY_COUNT) ? message.getIntProperty(MessageConstants.JMS_RETRY_COUNT) : 0;
+    }
+
+    private static int getDeliveryCount(Message message) throws JMSException {
+        return message.propertyExists(MessageConstants.JMS_DELIVERY_COUNT) ? message.getIntProperty(MessageConstants.JMS_DELIVERY_COUNT) : 1;
+    }
+}
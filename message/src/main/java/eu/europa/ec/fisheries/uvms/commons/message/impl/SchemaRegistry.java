@@ -0,0 +1,179 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+/**
+ * Compiles xsd schemas from the classpath once and keeps them for the lifetime of the class loader that owns them.
+ * Also holds the {@link ValidationMode} deciding whether a given message is validated, it can be set with the
+ * system properties {@value #VALIDATION_MODE_PROPERTY} and {@value #VALIDATION_SAMPLE_PERCENTAGE_PROPERTY}.
+ */
+public final class SchemaRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaRegistry.class);
+
+    public static final String VALIDATION_MODE_PROPERTY = "uvms.jaxb.validation.mode";
+    public static final String VALIDATION_SAMPLE_PERCENTAGE_PROPERTY = "uvms.jaxb.validation.sample.percentage";
+
+    private static final int DEFAULT_SAMPLE_PERCENTAGE = 10;
+
+    /*
+     * Keyed on the JAXB root class, whose class loader is used to resolve the xsd locations.
+     */
+    private static final ClassValue<ConcurrentMap<String, Schema>> SCHEMAS = new ClassValue<ConcurrentMap<String, Schema>>() {
+        @Override
+        protected ConcurrentMap<String, Schema> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static volatile ValidationMode validationMode = parseValidationMode(System.getProperty(VALIDATION_MODE_PROPERTY));
+    private static volatile int samplePercentage = parseSamplePercentage(System.getProperty(VALIDATION_SAMPLE_PERCENTAGE_PROPERTY));
+
+    private SchemaRegistry() {}
+
+    /*
+     * Ignores the case of the value, an unknown value falls back to FULL rather than failing the class initialization.
+     */
+    static ValidationMode parseValidationMode(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ValidationMode.FULL;
+        }
+        try {
+            return ValidationMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown {} {}, using {}", VALIDATION_MODE_PROPERTY, value, ValidationMode.FULL);
+            return ValidationMode.FULL;
+        }
+    }
+
+    /*
+     * Falls back to the default for a value that is not a number and clamps it to 0..100.
+     */
+    static int parseSamplePercentage(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_SAMPLE_PERCENTAGE;
+        }
+        int percentage;
+        try {
+            percentage = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid {} {}, using {}", VALIDATION_SAMPLE_PERCENTAGE_PROPERTY, value, DEFAULT_SAMPLE_PERCENTAGE);
+            return DEFAULT_SAMPLE_PERCENTAGE;
+        }
+        int clamped = Math.max(0, Math.min(100, percentage));
+        if (clamped != percentage) {
+            LOGGER.warn("{} {} is not between 0 and 100, using {}", VALIDATION_SAMPLE_PERCENTAGE_PROPERTY, value, clamped);
+        }
+        return clamped;
+    }
+
+    /**
+     * Returns the compiled schema made of the given xsd files, compiling it on first use.
+     *
+     * @param rootClass the JAXB root class validated by the schema, its class loader resolves the locations
+     * @param xsdLocations classpath locations of the xsd files, e.g. {@code xsd/contract/Exchange.xsd}
+     * @return the compiled schema
+     * @throws JAXBException if a location can not be found or the schema does not compile
+     */
+    public static Schema getSchema(Class<?> rootClass, String... xsdLocations) throws JAXBException {
+        String key = String.join("|", xsdLocations);
+        ConcurrentMap<String, Schema> schemas = SCHEMAS.get(rootClass);
+        Schema schema = schemas.get(key);
+        if (schema == null) {
+            schema = compile(rootClass.getClassLoader(), xsdLocations);
+            Schema existing = schemas.putIfAbsent(key, schema);
+            if (existing != null) {
+                schema = existing;
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * @return true if the next message should be validated according to the current {@link ValidationMode}
+     */
+    public static boolean shouldValidate() {
+        switch (validationMode) {
+            case FULL:
+                return true;
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextInt(100) < samplePercentage;
+            default:
+                return false;
+        }
+    }
+
+    public static ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    /**
+     * @param mode the validation mode of the next messages, not null
+     */
+    public static void setValidationMode(ValidationMode mode) {
+        validationMode = Objects.requireNonNull(mode, "Validation mode must not be null");
+    }
+
+    public static int getSamplePercentage() {
+        return samplePercentage;
+    }
+
+    /**
+     * @param percentage share of the messages validated in {@link ValidationMode#SAMPLED} mode, between 0 and 100
+     */
+    public static void setSamplePercentage(int percentage) {
+        if (percentage < 0 || percentage > 100) {
+            throw new IllegalArgumentException("Sample percentage must be between 0 and 100 but was " + percentage);
+        }
+        samplePercentage = percentage;
+    }
+
+    private static Schema compile(ClassLoader classLoader, String... xsdLocations) throws JAXBException {
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+        Source[] sources = new Source[xsdLocations.length];
+        for (int i = 0; i < xsdLocations.length; i++) {
+            String location = xsdLocations[i].startsWith("/") ? xsdLocations[i].substring(1) : xsdLocations[i];
+            URL url = classLoader.getResource(location);
+            if (url == null) {
+                throw new JAXBException("Could not find xsd " + xsdLocations[i] + " on the classpath");
+            }
+            sources[i] = new StreamSource(url.toExternalForm());
+        }
+        long start = System.currentTimeMillis();
+        try {
+            // SchemaFactory is not thread safe, a new one is used per compilation
+            Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(sources);
+            LOGGER.info("Compiled schema {} in {} ms", String.join(", ", xsdLocations), System.currentTimeMillis() - start);
+            return schema;
+        } catch (SAXException e) {
+            throw new JAXBException("Could not compile schema " + String.join(", ", xsdLocations), e);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MessagingMetrics} kept in memory, to be exposed by the application (e.g. through a REST resource or JMX) or
+ * logged periodically.
+ * <p>
+ * At most {@link #DEFAULT_MAX_DESTINATIONS} destinations (or the number given to the constructor) are tracked, the
+ * measurements of any further destination are added up under {@link #OTHER_DESTINATIONS}.
+ */
+public class InMemoryMessagingMetrics implements MessagingMetrics {
+
+    public static final int DEFAULT_MAX_DESTINATIONS = 1000;
+
+    public static final String OTHER_DESTINATIONS = "<other>";
+
+    private final int maxDestinations;
+    private final ConcurrentMap<String, DestinationMetrics> destinations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> marshalling = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> unmarshalling = new ConcurrentHashMap<>();
+
+    public InMemoryMessagingMetrics() {
+        this(DEFAULT_MAX_DESTINATIONS);
+    }
+
+    /**
+     * @param maxDestinations the number of destinations to track separately, at least 1
+     */
+    public InMemoryMessagingMetrics(int maxDestinations) {
+        if (maxDestinations < 1) {
+            throw new IllegalArgumentException("maxDestinations must be at least 1: " + maxDestinations);
+        }
+        this.maxDestinations = maxDestinations;
+    }
+
+    @Override
+    public void messageSent(String destination, long payloadSize, long elapsedNanos) {
+        DestinationMetrics metrics = forDestination(destination);
+        metrics.sent.increment();
+        metrics.sentPayload.add(Math.max(0, payloadSize));
+        metrics.sendLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void sendFailed(String destination) {
+        forDestination(destination).failed.increment();
+    }
+
+    @Override
+    public void messageReceived(String destination, long payloadSize) {
+        DestinationMetrics metrics = forDestination(destination);
+        metrics.received.increment();
+        metrics.receivedPayload.add(Math.max(0, payloadSize));
+    }
+
+    @Override
+    public void marshalled(Class<?> type, long elapsedNanos) {
+        marshalling.computeIfAbsent(type.getName(), name -> new LatencyHistogram()).record(elapsedNanos);
+    }
+
+    @Override
+    public void unmarshalled(Class<?> type, long elapsedNanos) {
+        unmarshalling.computeIfAbsent(type.getName(), name -> new LatencyHistogram()).record(elapsedNanos);
+    }
+
+    @Override
+    public void replyReceived(String destination, long roundTripNanos) {
+        forDestination(destination).replyLatency.record(roundTripNanos);
+    }
+
+    @Override
+    public void replyTimedOut(String destination) {
+        forDestination(destination).replyTimeouts.increment();
+    }
+
+    private DestinationMetrics forDestination(String destination) {
+        DestinationMetrics metrics = destinations.get(destination);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (destinations.size() >= maxDestinations) {
+            return destinations.computeIfAbsent(OTHER_DESTINATIONS, DestinationMetrics::new);
+        }
+        return destinations.computeIfAbsent(destination, DestinationMetrics::new);
+    }
+
+    /**
+     * @return the metrics of every destination, sorted by name
+     */
+    public Map<String, DestinationMetrics> getDestinations() {
+        return Collections.unmodifiableMap(new TreeMap<>(destinations));
+    }
+
+    /**
+     * @return the marshalling times per JAXB root class name
+     */
+    public Map<String, LatencyHistogram> getMarshalling() {
+        return Collections.unmodifiableMap(new TreeMap<>(marshalling));
+    }
+
+    /**
+     * @return the unmarshalling times per JAXB root class name
+     */
+    public Map<String, LatencyHistogram> getUnmarshalling() {
+        return Collections.unmodifiableMap(new TreeMap<>(unmarshalling));
+    }
+
+    public static final class DestinationMetrics {
+
+        private final String destination;
+        private final long createdNanos = System.nanoTime();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder sentPayload = new LongAdder();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder receivedPayload = new LongAdder();
+        private final LongAdder replyTimeouts = new LongAdder();
+        private final LatencyHistogram sendLatency = new LatencyHistogram();
+        private final LatencyHistogram replyLatency = new LatencyHistogram();
+
+        private DestinationMetrics(String destination) {
+            this.destination = destination;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public long getSentCount() {
+            return sent.sum();
+        }
+
+        public long getFailedCount() {
+            return failed.sum();
+        }
+
+        public long getSentPayloadSize() {
+            return sentPayload.sum();
+        }
+
+        public long getReceivedCount() {
+            return received.sum();
+        }
+
+        public long getReceivedPayloadSize() {
+            return receivedPayload.sum();
+        }
+
+        public long getReplyTimeoutCount() {
+            return replyTimeouts.sum();
+        }
+
+        /**
+         * @return the average number of messages sent per second since the destination was first seen
+         */
+        public double getSendRate() {
+            long elapsedNanos = System.nanoTime() - createdNanos;
+            return elapsedNanos <= 0 ? 0 : sent.sum() * 1e9 / elapsedNanos;
+        }
+
+        public LatencyHistogram getSendLatency() {
+            return sendLatency;
+        }
+
+        public LatencyHistogram getReplyLatency() {
+            return replyLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "DestinationMetrics{" +
+                    "destination='" + destination + '\'' +
+                    ", sent=" + getSentCount() +
+                    ", failed=" + getFailedCount() +
+                    ", sentPayloadSize=" + getSentPayloadSize() +
+                    ", received=" + getReceivedCount() +
+                    ", receivedPayloadSize=" + getReceivedPayloadSize() +
+                    ", sendRate=" + getSendRate() +
+                    ", sendLatency=" + sendLatency +
+                    ", replyLatency=" + replyLatency +
+                    ", replyTimeouts=" + getReplyTimeoutCount() +
+                    '}';
+        }
+    }
+}
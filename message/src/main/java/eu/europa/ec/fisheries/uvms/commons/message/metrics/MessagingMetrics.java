@@ -0,0 +1,57 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.metrics;
+
+/**
+ * Receives the measurements of the JMS paths of the message module: sends and receives per destination, JAXB
+ * (un)marshalling times and request/reply round trips. Register an implementation with
+ * {@link MessagingMetricsRegistry#register(MessagingMetrics)}, e.g. {@link InMemoryMessagingMetrics} or an adapter to
+ * the metrics library of the application server. All methods are called on the messaging threads and must be cheap.
+ */
+public interface MessagingMetrics {
+
+    MessagingMetrics NOOP = new MessagingMetrics() {
+    };
+
+    /**
+     * @param destination the name of the queue or topic
+     * @param payloadSize the size of the payload, characters for text messages and bytes for bytes messages
+     * @param elapsedNanos the time spent in the send call
+     */
+    default void messageSent(String destination, long payloadSize, long elapsedNanos) {
+    }
+
+    default void sendFailed(String destination) {
+    }
+
+    /**
+     * @param destination the name of the queue or topic
+     * @param payloadSize the size of the payload, characters for text messages and bytes for bytes messages
+     */
+    default void messageReceived(String destination, long payloadSize) {
+    }
+
+    default void marshalled(Class<?> type, long elapsedNanos) {
+    }
+
+    default void unmarshalled(Class<?> type, long elapsedNanos) {
+    }
+
+    /**
+     * @param destination the name of the destination the reply was received from
+     * @param roundTripNanos the time between sending the request (or starting to wait) and receiving the reply
+     */
+    default void replyReceived(String destination, long roundTripNanos) {
+    }
+
+    default void replyTimedOut(String destination) {
+    }
+}
@@ -0,0 +1,119 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jms.Message;
+
+import eu.europa.ec.fisheries.uvms.commons.message.impl.FakeJms;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+public class MappedDiagnosticContextTest {
+
+    @After
+    public void tearDown() {
+        MappedDiagnosticContext.setPropagatedKeys();
+        MappedDiagnosticContext.setPropagationFormat(PropagationFormat.PROPERTIES);
+        MDC.clear();
+    }
+
+    @Test
+    public void testWholeContextIsPropagatedByDefault() throws Exception {
+        MDC.put("requestId", "42");
+        MDC.put("user", "vms_admin");
+        Message message = FakeJms.textMessage("<a/>");
+
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+        MDC.clear();
+        MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(message);
+
+        assertEquals("42", MDC.get("requestId"));
+        assertEquals("vms_admin", MDC.get("user"));
+    }
+
+    @Test
+    public void testOutboundPropertiesAreFiltered() throws Exception {
+        MappedDiagnosticContext.setPropagatedKeys("requestId");
+        MDC.put("requestId", "42");
+        MDC.put("user", "vms_admin");
+        Message message = FakeJms.textMessage("<a/>");
+
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+
+        assertEquals("42", message.getStringProperty("MDC_requestId"));
+        assertNull(message.getStringProperty("MDC_user"));
+    }
+
+    @Test
+    public void testOutboundTraceContextIsFiltered() throws Exception {
+        MappedDiagnosticContext.setPropagatedKeys("requestId");
+        MappedDiagnosticContext.setPropagationFormat(PropagationFormat.COMPACT);
+        MDC.put("requestId", "42");
+        MDC.put("user", "vms_admin");
+        Message message = FakeJms.textMessage("<a/>");
+
+        MappedDiagnosticContext.addThreadMappedDiagnosticContextToMessageProperties(message);
+
+        Map<String, String> traceContext = TraceContextCodec.decode(message.getStringProperty(MappedDiagnosticContext.TRACE_CONTEXT_PROPERTY));
+        assertEquals(1, traceContext.size());
+        assertEquals("42", traceContext.get("requestId"));
+        assertNull(message.getStringProperty("MDC_requestId"));
+    }
+
+    @Test
+    public void testInboundPropertiesAreFiltered() throws Exception {
+        MappedDiagnosticContext.setPropagatedKeys("requestId");
+        Message message = FakeJms.textMessage("<a/>");
+        message.setStringProperty("MDC_requestId", "42");
+        message.setStringProperty("MDC_user", "vms_admin");
+
+        MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(message);
+
+        assertEquals("42", MDC.get("requestId"));
+        assertNull(MDC.get("user"));
+    }
+
+    @Test
+    public void testInboundTraceContextIsFiltered() throws Exception {
+        MappedDiagnosticContext.setPropagatedKeys("requestId");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("requestId", "42");
+        entries.put("user", "vms_admin");
+        Message message = FakeJms.textMessage("<a/>");
+        message.setStringProperty(MappedDiagnosticContext.TRACE_CONTEXT_PROPERTY, TraceContextCodec.encode(entries));
+
+        MappedDiagnosticContext.addMessagePropertiesToThreadMappedDiagnosticContext(message);
+
+        assertEquals("42", MDC.get("requestId"));
+        assertNull(MDC.get("user"));
+    }
+
+    @Test
+    public void testPropagationFormatIgnoresCase() {
+        assertEquals(PropagationFormat.COMPACT, MappedDiagnosticContext.parsePropagationFormat("compact"));
+        assertEquals(PropagationFormat.COMPACT, MappedDiagnosticContext.parsePropagationFormat(" Compact "));
+        assertEquals(PropagationFormat.PROPERTIES, MappedDiagnosticContext.parsePropagationFormat("PROPERTIES"));
+    }
+
+    @Test
+    public void testUnknownPropagationFormatFallsBackToProperties() {
+        assertEquals(PropagationFormat.PROPERTIES, MappedDiagnosticContext.parsePropagationFormat("compactt"));
+        assertEquals(PropagationFormat.PROPERTIES, MappedDiagnosticContext.parsePropagationFormat(""));
+        assertEquals(PropagationFormat.PROPERTIES, MappedDiagnosticContext.parsePropagationFormat(null));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.context;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TraceContextCodecTest {
+
+    @Test
+    public void testTraceParentAndEntries() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("traceId", "4bf92f3577b34da6a3ce929d0e0e4736");
+        entries.put("spanId", "00f067aa0ba902b7");
+        entries.put("requestId", "42");
+        entries.put("user Id", "rep&power=1;x");
+
+        String encoded = TraceContextCodec.encode(entries);
+
+        assertEquals("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01;requestId=42&user+Id=rep%26power%3D1%3Bx", encoded);
+        assertEquals(entries, TraceContextCodec.decode(encoded));
+    }
+
+    @Test
+    public void testWithoutTraceParent() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("requestId", "3f1e0c9a-5b1d-4e55-9a39-1f8e2a3c7d10");
+        entries.put("traceId", "not-a-trace-id");
+
+        String encoded = TraceContextCodec.encode(entries);
+
+        assertEquals("-;requestId=3f1e0c9a-5b1d-4e55-9a39-1f8e2a3c7d10&traceId=not-a-trace-id", encoded);
+        assertEquals(entries, TraceContextCodec.decode(encoded));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayDeque;
+
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractConsumerTest {
+
+    private final ArrayDeque<Message> received = new ArrayDeque<>();
+    private final AbstractConsumer consumer = new AbstractConsumer() {
+        @Override
+        public Destination getDestination() {
+            return FakeJms.queue("UVMSTestReply");
+        }
+    };
+
+    @Before
+    public void setUp() {
+        consumer.context = FakeJms.context(received);
+    }
+
+    @Test
+    public void testGetMessageBodyReturnsTheText() throws Exception {
+        received.add(FakeJms.textMessage("<reply/>"));
+
+        assertEquals("<reply/>", consumer.getMessageBody("ID:1", String.class));
+    }
+
+    @Test
+    public void testGetMessageBodyStillReturnsTheMessageForMessageTypes() throws Exception {
+        TextMessage reply = FakeJms.textMessage("<reply/>");
+        received.add(reply);
+
+        assertSame(reply, consumer.getMessageBody("ID:1", TextMessage.class));
+    }
+}
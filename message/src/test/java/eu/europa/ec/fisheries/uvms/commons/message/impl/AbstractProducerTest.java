@@ -0,0 +1,155 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.BatchMessage;
+import org.junit.Test;
+
+public class AbstractProducerTest {
+
+    private final List<Message> sent = new ArrayList<>();
+    private final List<String> transaction = new ArrayList<>();
+
+    @Test
+    public void testBatchIsCommittedPerChunk() throws Exception {
+        AbstractProducer producer = producer(connectionFactory());
+
+        List<String> messageIds = producer.sendBatch(batch("a", "b", "c", "d", "e"), 2);
+
+        assertEquals(Arrays.asList("commit 2", "commit 4", "commit 5", "close"), transaction);
+        assertEquals(idsOf(sent), messageIds);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), textsOf(sent));
+    }
+
+    @Test
+    public void testFailedChunkIsRolledBack() throws Exception {
+        AbstractProducer producer = producer(connectionFactory());
+
+        try {
+            producer.sendBatch(batch("a", "b", "c", "poison", "e"), 2);
+            fail("Expected a JMSException");
+        } catch (JMSException e) {
+            assertEquals("Batch failed after 2 committed messages: poison", e.getMessage());
+            assertTrue(e.getCause() instanceof JMSRuntimeException);
+        }
+
+        assertEquals(Arrays.asList("commit 2", "rollback 3", "close"), transaction);
+    }
+
+    @Test
+    public void testBatchJoinsTheTransactionWithoutBatchConnectionFactory() throws Exception {
+        AbstractProducer producer = producer(null);
+
+        List<String> messageIds = producer.sendBatch(batch("a", "b", "c"), 2);
+
+        assertEquals(3, messageIds.size());
+        assertEquals(idsOf(sent), messageIds);
+        assertEquals(Arrays.asList("a", "b", "c"), textsOf(sent));
+        assertTrue(transaction.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSizeMustBePositive() throws Exception {
+        producer(null).sendBatch(batch("a"), 0);
+    }
+
+    private AbstractProducer producer(ConnectionFactory batchConnectionFactory) {
+        AbstractProducer producer = new AbstractProducer() {
+            @Override
+            public Destination getDestination() {
+                return FakeJms.queue("UVMSBatchQueue");
+            }
+
+            @Override
+            protected ConnectionFactory getBatchConnectionFactory() {
+                return batchConnectionFactory;
+            }
+        };
+        producer.context = FakeJms.context(new ArrayDeque<>(), sent);
+        return producer;
+    }
+
+    /*
+     * A factory of locally transacted contexts recording their commits and rollbacks, with the number of messages sent
+     * so far, and failing to create a message with the text "poison".
+     */
+    private ConnectionFactory connectionFactory() {
+        JMSContext context = FakeJms.context(new ArrayDeque<>(), sent);
+        JMSContext transacted = (JMSContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JMSContext.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "commit":
+                        case "rollback":
+                            transaction.add(method.getName() + " " + sent.size());
+                            return null;
+                        case "close":
+                            transaction.add("close");
+                            return null;
+                        case "createTextMessage":
+                            if ("poison".equals(args[0])) {
+                                throw new JMSRuntimeException("poison");
+                            }
+                            break;
+                        default:
+                    }
+                    try {
+                        return method.invoke(context, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        return (ConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ConnectionFactory.class},
+                (proxy, method, args) -> "createContext".equals(method.getName()) ? transacted : null);
+    }
+
+    private static List<BatchMessage> batch(String... texts) {
+        List<BatchMessage> batch = new ArrayList<>();
+        for (String text : texts) {
+            batch.add(new BatchMessage(text));
+        }
+        return batch;
+    }
+
+    private static List<String> idsOf(List<Message> messages) throws JMSException {
+        List<String> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getJMSMessageID());
+        }
+        return ids;
+    }
+
+    private static List<String> textsOf(List<Message> messages) throws JMSException {
+        List<String> texts = new ArrayList<>();
+        for (Message message : messages) {
+            texts.add(((TextMessage) message).getText());
+        }
+        return texts;
+    }
+}
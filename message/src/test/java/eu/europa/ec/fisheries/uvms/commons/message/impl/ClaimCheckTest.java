@@ -0,0 +1,116 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClaimCheckTest {
+
+    private Path directory;
+    private FileSystemBlobStore store;
+
+    @Before
+    public void createStore() throws Exception {
+        directory = Files.createTempDirectory("claimcheck");
+        store = new FileSystemBlobStore("test", directory, Duration.ofHours(1));
+    }
+
+    @After
+    public void deleteStore() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testStoreAndOpen() throws Exception {
+        ClaimCheck claimCheck = ClaimCheck.of(store, 5);
+        assertFalse(claimCheck.appliesTo("tiny"));
+        assertTrue(claimCheck.appliesTo("<large/>"));
+
+        String reference = claimCheck.store("<large>\u00e5\u00e4\u00f6</large>");
+
+        assertTrue(reference.startsWith("test:"));
+        try (InputStream in = ClaimCheck.open(reference)) {
+            assertEquals("<large>\u00e5\u00e4\u00f6</large>", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testClaimCheckedTextRoundTrip() throws Exception {
+        String payload = "<large>\u00e5\u00e4\u00f6</large>";
+        Message message = MessageBodies.createMessage(FakeJms.context(), payload, PayloadCompression.DISABLED, ClaimCheck.of(store, 5));
+        assertNull(((TextMessage) message).getText());
+        assertEquals(payload, MessageBodies.readText(message));
+
+        ArrayDeque<Message> received = new ArrayDeque<>();
+        received.add(message);
+        AbstractConsumer consumer = new AbstractConsumer() {
+            @Override
+            public Destination getDestination() {
+                return new Destination() {};
+            }
+        };
+        consumer.context = FakeJms.context(received);
+
+        assertEquals(payload, consumer.getMessageBody("ID:1", String.class));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testDeletedBlob() throws Exception {
+        String blobId = store.put(out -> out.write(1));
+        store.delete(blobId);
+
+        store.open(blobId);
+    }
+
+    @Test
+    public void testPurgeExpired() throws Exception {
+        String expired = store.put(out -> out.write(1));
+        String fresh = store.put(out -> out.write(2));
+        Files.setLastModifiedTime(directory.resolve(expired + ".blob"), FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+
+        assertEquals(1, store.purgeExpired());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        try (InputStream in = store.open(fresh)) {
+            assertEquals(2, in.read());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class CompressionCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            payload.append("<position lat=\"57.").append(i).append("\" lon=\"11.").append(i).append("\"/>");
+        }
+        byte[] original = payload.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = codec.compress(compressed)) {
+                out.write(original);
+            }
+            assertTrue(compressed.size() < original.length / 4);
+
+            try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed.toByteArray()))) {
+                assertEquals(payload.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testForContentEncoding() {
+        assertSame(CompressionCodec.GZIP, CompressionCodec.forContentEncoding("gzip"));
+        assertSame(CompressionCodec.DEFLATE, CompressionCodec.forContentEncoding("DEFLATE"));
+    }
+
+    @Test
+    public void testThreshold() {
+        PayloadCompression compression = PayloadCompression.of(CompressionCodec.GZIP, 10);
+
+        assertFalse(compression.appliesTo("short"));
+        assertTrue(compression.appliesTo("long enough"));
+        assertFalse(PayloadCompression.DISABLED.appliesTo("long enough"));
+    }
+}
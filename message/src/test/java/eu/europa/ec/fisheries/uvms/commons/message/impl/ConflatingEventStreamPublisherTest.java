@@ -0,0 +1,122 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Destination;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ConflatingEventStreamPublisherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final RecordingProducer producer = new RecordingProducer();
+
+    @After
+    public void stopScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testLatestEventPerKeyIsSent() {
+        ConflatingEventStreamPublisher publisher = new ConflatingEventStreamPublisher(producer, scheduler, 60000, 2000);
+        for (int i = 0; i < 100; i++) {
+            publisher.publish("asset-1:Movement", "position " + i, "Movement", "[\"alice\"]", "AIS");
+        }
+        publisher.publishFiltered("asset-2:Movement", "position x", "Movement", Collections.singletonList("bob"), "INMARSAT_C");
+        assertEquals(2, publisher.getPendingCount());
+        assertEquals(101, publisher.getPublishedCount());
+        assertEquals(99, publisher.getConflatedCount());
+
+        publisher.flush();
+
+        assertEquals(2, producer.sent.size());
+        assertTrue(producer.sent.contains("json position 99 Movement [\"alice\"] AIS 2000"));
+        assertTrue(producer.sent.contains("filtered position x Movement [bob] INMARSAT_C 2000"));
+        assertEquals(0, publisher.getPendingCount());
+        assertEquals(2, publisher.getSentCount());
+    }
+
+    @Test
+    public void testBroadcastStaysFiltered() {
+        ConflatingEventStreamPublisher publisher = new ConflatingEventStreamPublisher(producer, scheduler, 60000, 2000);
+        publisher.publishFiltered("asset-1:Movement", "position", "Movement", null, "AIS");
+        publisher.close();
+
+        assertEquals(Collections.singletonList("filtered position Movement null AIS 2000"), producer.sent);
+    }
+
+    @Test
+    public void testScheduledFlush() throws Exception {
+        ConflatingEventStreamPublisher publisher = new ConflatingEventStreamPublisher(producer, scheduler, 10, 2000);
+        publisher.publish("asset-1:Movement", "position", "Movement", null, "AIS");
+        for (int i = 0; i < 500 && publisher.getSentCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, publisher.getSentCount());
+        publisher.close();
+    }
+
+    @Test
+    public void testScheduledFlushSurvivesNonJmsFailures() throws Exception {
+        producer.failures.set(1);
+        ConflatingEventStreamPublisher publisher = new ConflatingEventStreamPublisher(producer, scheduler, 10, 2000);
+        publisher.publish("asset-1:Movement", "position 1", "Movement", null, "AIS");
+        for (int i = 0; i < 500 && producer.failures.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        publisher.publish("asset-1:Movement", "position 2", "Movement", null, "AIS");
+        for (int i = 0; i < 500 && publisher.getSentCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Collections.singletonList("json position 2 Movement null AIS 2000"), producer.sent);
+        publisher.close();
+    }
+
+    private static final class RecordingProducer extends AbstractTopicProducer {
+
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public Destination getDestination() {
+            return null;
+        }
+
+        @Override
+        public String sendMessageToEventStream(String data, String eventName, String subscriberListJson, String movementSource, long timeToLiveInMillis) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("WELD-001303: No active contexts for scope type javax.enterprise.context.RequestScoped");
+            }
+            sent.add("json " + data + " " + eventName + " " + subscriberListJson + " " + movementSource + " " + timeToLiveInMillis);
+            return null;
+        }
+
+        @Override
+        public String sendFilteredMessageToEventStream(String data, String eventName, Collection<String> subscribers, String movementSource, long timeToLiveInMillis) {
+            sent.add("filtered " + data + " " + eventName + " " + subscribers + " " + movementSource + " " + timeToLiveInMillis);
+            return null;
+        }
+    }
+}
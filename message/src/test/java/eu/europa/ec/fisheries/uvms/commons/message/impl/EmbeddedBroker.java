@@ -0,0 +1,99 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+/**
+ * In-VM ActiveMQ Artemis broker for tests, with the helpers to wire producers and consumers to application managed
+ * contexts instead of the contexts injected by the container. A JMSContext is single threaded, so every thread wires
+ * its own producers and consumers.
+ */
+class EmbeddedBroker implements AutoCloseable {
+
+    private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+    private final ActiveMQConnectionFactory connectionFactory;
+    private final Path dataDirectory;
+
+    /**
+     * @param persistent whether messages are written to a journal in a temporary directory, as on a real broker, or
+     *                   only kept in memory
+     */
+    EmbeddedBroker(boolean persistent) throws Exception {
+        Configuration configuration = new ConfigurationImpl()
+                .setPersistenceEnabled(persistent)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0");
+        if (persistent) {
+            dataDirectory = Files.createTempDirectory("artemis");
+            configuration.setJournalDirectory(dataDirectory.resolve("journal").toString())
+                    .setBindingsDirectory(dataDirectory.resolve("bindings").toString())
+                    .setLargeMessagesDirectory(dataDirectory.resolve("large-messages").toString())
+                    .setPagingDirectory(dataDirectory.resolve("paging").toString());
+        } else {
+            dataDirectory = null;
+        }
+        server.setConfiguration(configuration);
+        server.start();
+        connectionFactory = new ActiveMQConnectionFactory("vm://0");
+    }
+
+    ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    JMSContext createContext() {
+        return connectionFactory.createContext(JMSContext.AUTO_ACKNOWLEDGE);
+    }
+
+    static <T extends AbstractProducer> T wire(T producer, JMSContext context) {
+        producer.context = context;
+        return producer;
+    }
+
+    static <T extends AbstractTopicProducer> T wire(T producer, JMSContext context) {
+        producer.context = context;
+        return producer;
+    }
+
+    static <T extends AbstractConsumer> T wire(T consumer, JMSContext context) {
+        consumer.context = context;
+        return consumer;
+    }
+
+    @Override
+    public void close() throws Exception {
+        connectionFactory.close();
+        server.stop();
+        if (dataDirectory != null) {
+            deleteRecursively(dataDirectory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
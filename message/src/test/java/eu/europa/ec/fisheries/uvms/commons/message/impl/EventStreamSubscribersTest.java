@@ -0,0 +1,82 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.Message;
+
+import org.junit.Test;
+
+public class EventStreamSubscribersTest {
+
+    @Test
+    public void testProperty() {
+        assertNull(EventStreamSubscribers.toProperty(null));
+        assertNull(EventStreamSubscribers.toProperty(Collections.emptyList()));
+        assertEquals(",alice,bob,", EventStreamSubscribers.toProperty(Arrays.asList("alice", "bob")));
+        assertEquals(",x%2Cy,", EventStreamSubscribers.toProperty(Collections.singletonList("x,y")));
+    }
+
+    @Test
+    public void testSelector() {
+        assertEquals("(broadcast = TRUE OR subscriberIds LIKE '%,alice,%' ESCAPE '!')", EventStreamSubscribers.selectorFor("alice"));
+        assertEquals("(broadcast = TRUE OR subscriberIds LIKE '%,a!_b,%' ESCAPE '!')", EventStreamSubscribers.selectorFor("a_b"));
+        assertEquals("(broadcast = TRUE OR subscriberIds LIKE '%,x!%2Cy,%' ESCAPE '!')", EventStreamSubscribers.selectorFor("x,y"));
+        assertEquals("(broadcast = TRUE OR subscriberIds LIKE '%,alice,%' ESCAPE '!') AND event IN ('Movement', 'Ticket''s')",
+                EventStreamSubscribers.selectorFor("alice", Arrays.asList("Movement", "Ticket's")));
+    }
+
+    @Test
+    public void testAddressing() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        Message message = message(properties);
+
+        EventStreamSubscribers.addressTo(message, Arrays.asList("alice", "bob"));
+        assertEquals(Boolean.FALSE, properties.get(MessageConstants.EVENT_STREAM_BROADCAST));
+        assertTrue(EventStreamSubscribers.isAddressedTo(message, "bob"));
+        assertFalse(EventStreamSubscribers.isAddressedTo(message, "bo"));
+
+        properties.clear();
+        EventStreamSubscribers.addressTo(message, null);
+        assertEquals(Boolean.TRUE, properties.get(MessageConstants.EVENT_STREAM_BROADCAST));
+        assertTrue(EventStreamSubscribers.isAddressedTo(message, "anybody"));
+    }
+
+    private static Message message(Map<String, Object> properties) {
+        return (Message) Proxy.newProxyInstance(EventStreamSubscribersTest.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setStringProperty":
+                        case "setBooleanProperty":
+                            properties.put((String) args[0], args[1]);
+                            return null;
+                        case "getStringProperty":
+                            return properties.get(args[0]);
+                        case "propertyExists":
+                            return properties.containsKey(args[0]);
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,213 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TextMessage;
+
+/**
+ * In memory text and bytes messages and a {@link JMSContext} creating them, for the tests that don't need a broker.
+ */
+public final class FakeJms {
+
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+    private FakeJms() {
+    }
+
+    public static TextMessage textMessage(String text) {
+        return (TextMessage) message(TextMessage.class, text);
+    }
+
+    public static BytesMessage bytesMessage() {
+        return (BytesMessage) message(BytesMessage.class, null);
+    }
+
+    /**
+     * @param received the messages returned, in order, by the consumers of the context
+     */
+    public static JMSContext context(Deque<Message> received) {
+        return context(received, new ArrayList<>());
+    }
+
+    /**
+     * @param received the messages returned, in order, by the consumers of the context
+     * @param sent collects the messages sent by the producers of the context
+     */
+    public static JMSContext context(Deque<Message> received, List<Message> sent) {
+        JMSProducer producer = (JMSProducer) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[]{JMSProducer.class},
+                (proxy, method, args) -> {
+                    if ("send".equals(method.getName()) && args[1] instanceof Message) {
+                        Message message = (Message) args[1];
+                        message.setJMSMessageID("ID:" + MESSAGE_IDS.incrementAndGet());
+                        sent.add(message);
+                    }
+                    return method.getReturnType() == JMSProducer.class ? proxy : null;
+                });
+        JMSConsumer consumer = (JMSConsumer) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[]{JMSConsumer.class},
+                (proxy, method, args) -> method.getName().startsWith("receive") ? received.poll() : null);
+        return (JMSContext) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[]{JMSContext.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createTextMessage":
+                            return textMessage(args == null ? null : (String) args[0]);
+                        case "createBytesMessage":
+                            return bytesMessage();
+                        case "createConsumer":
+                            return consumer;
+                        case "createProducer":
+                            return producer;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    public static JMSContext context() {
+        return context(new ArrayDeque<>());
+    }
+
+    public static Queue queue(String name) {
+        return (Queue) destination(Queue.class, name);
+    }
+
+    public static TemporaryQueue temporaryQueue(String name) {
+        return (TemporaryQueue) destination(TemporaryQueue.class, name);
+    }
+
+    private static Destination destination(Class<? extends Queue> type, String name) {
+        return (Destination) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getQueueName":
+                        case "toString":
+                            return name;
+                        case "hashCode":
+                            return name.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static Message message(Class<? extends Message> type, String initialText) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        Map<String, Object> headers = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String[] text = {initialText};
+        int[] position = {0};
+        return (Message) Proxy.newProxyInstance(FakeJms.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    switch (name) {
+                        case "getText":
+                            return text[0];
+                        case "setText":
+                            text[0] = (String) args[0];
+                            return null;
+                        case "propertyExists":
+                            return properties.containsKey(args[0]);
+                        case "getPropertyNames":
+                            return Collections.enumeration(properties.keySet());
+                        case "clearProperties":
+                            properties.clear();
+                            return null;
+                        case "writeBytes":
+                            byte[] bytes = (byte[]) args[0];
+                            body.write(bytes, args.length == 3 ? (Integer) args[1] : 0, args.length == 3 ? (Integer) args[2] : bytes.length);
+                            return null;
+                        case "reset":
+                            position[0] = 0;
+                            return null;
+                        case "getBodyLength":
+                            return (long) body.size();
+                        case "readBytes":
+                            byte[] target = (byte[]) args[0];
+                            int length = Math.min(args.length == 2 ? (Integer) args[1] : target.length, body.size() - position[0]);
+                            if (length <= 0) {
+                                return -1;
+                            }
+                            System.arraycopy(body.toByteArray(), position[0], target, 0, length);
+                            position[0] += length;
+                            return length;
+                        case "toString":
+                            return type.getSimpleName() + properties;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                    }
+                    if (name.startsWith("set") && name.endsWith("Property")) {
+                        properties.put((String) args[0], args[1]);
+                        return null;
+                    }
+                    if (name.startsWith("get") && name.endsWith("Property")) {
+                        Object value = properties.get(args[0]);
+                        return value != null || !method.getReturnType().isPrimitive() ? value : defaultValue(method.getReturnType());
+                    }
+                    if (name.startsWith("setJMS")) {
+                        headers.put(name.substring(3), args[0]);
+                        return null;
+                    }
+                    if (name.startsWith("getJMS")) {
+                        Object value = headers.get(name.substring(3));
+                        return value != null || !method.getReturnType().isPrimitive() ? value : defaultValue(method.getReturnType());
+                    }
+                    return method.getReturnType().isPrimitive() ? defaultValue(method.getReturnType()) : null;
+                });
+    }
+
+    private static Object defaultValue(Class<?> primitive) {
+        if (primitive == boolean.class) {
+            return false;
+        }
+        if (primitive == long.class) {
+            return 0L;
+        }
+        if (primitive == double.class) {
+            return 0d;
+        }
+        if (primitive == float.class) {
+            return 0f;
+        }
+        if (primitive == short.class) {
+            return (short) 0;
+        }
+        if (primitive == byte.class) {
+            return (byte) 0;
+        }
+        if (primitive == void.class) {
+            return null;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class GroupedMessageExecutorTest {
+
+    @Test
+    public void testOrderIsKeptWithinGroup() throws Exception {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (GroupedMessageExecutor executor = GroupedMessageExecutor.withOwnWorkers(8)) {
+            for (int i = 0; i < 2000; i++) {
+                String group = "asset-" + (i % 10);
+                int sequence = i;
+                futures.add(executor.submit(group, () -> processed
+                        .computeIfAbsent(group, key -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(sequence)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(10, processed.size());
+        for (List<Integer> sequences : processed.values()) {
+            assertEquals(200, sequences.size());
+            for (int i = 1; i < sequences.size(); i++) {
+                assertTrue(sequences.get(i - 1) < sequences.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testGroupsRunConcurrently() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            GroupedMessageExecutor executor = new GroupedMessageExecutor(workers);
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            CompletableFuture<Void> first = executor.submit("a", () -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            });
+            CompletableFuture<Void> second = executor.submit("b", () -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            });
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueueDepth() throws Exception {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try {
+            GroupedMessageExecutor executor = new GroupedMessageExecutor(workers);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            executor.submit("a", () -> {
+                started.countDown();
+                release.await();
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.submit("a", () -> { });
+            CompletableFuture<Void> last = executor.submit("a", () -> { });
+
+            assertEquals(2, executor.getQueueDepth("a"));
+            assertEquals(Integer.valueOf(2), executor.getQueueDepths().get("a"));
+            assertEquals(2, executor.getQueuedCount());
+
+            release.countDown();
+            last.get(5, TimeUnit.SECONDS);
+            assertEquals(0, executor.getQueueDepth("a"));
+            assertEquals(0, executor.getQueuedCount());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedTaskDoesNotBlockGroup() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            GroupedMessageExecutor executor = new GroupedMessageExecutor(workers);
+            AtomicInteger processed = new AtomicInteger();
+            CompletableFuture<Void> failed = executor.submit("a", () -> {
+                throw new IllegalStateException("poison");
+            });
+            CompletableFuture<Void> next = executor.submit("a", processed::incrementAndGet);
+
+            next.get(5, TimeUnit.SECONDS);
+            assertEquals(1, processed.get());
+            try {
+                failed.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                return;
+            }
+            throw new AssertionError("The failure should complete the future exceptionally");
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectedGroupIsReset() throws Exception {
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        List<Runnable> accepted = new ArrayList<>();
+        GroupedMessageExecutor executor = new GroupedMessageExecutor(command -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("closed");
+            }
+            accepted.add(command);
+        });
+        try {
+            executor.submit("a", () -> {
+            });
+            fail("Expected a RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            assertEquals(0, executor.getQueuedCount());
+            assertEquals(0, executor.getActiveGroupCount());
+        }
+
+        rejecting.set(false);
+        CompletableFuture<Void> future = executor.submit("a", () -> {
+        });
+        assertEquals(1, accepted.size());
+        accepted.get(0).run();
+
+        assertTrue(future.isDone());
+        assertEquals(0, executor.getActiveGroupCount());
+    }
+
+    @Test
+    public void testSubmitAfterCloseIsRejected() {
+        GroupedMessageExecutor executor = GroupedMessageExecutor.withOwnWorkers(1);
+        executor.close();
+        try {
+            executor.submit("a", () -> {
+            });
+            fail("Expected a RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            assertEquals(0, executor.getQueueDepth("a"));
+            assertEquals(0, executor.getActiveGroupCount());
+        }
+    }
+}
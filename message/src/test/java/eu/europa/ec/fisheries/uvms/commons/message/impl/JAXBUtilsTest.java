@@ -0,0 +1,108 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class JAXBUtilsTest {
+
+    @Test
+    public void testMarshallAndUnmarshall() throws Exception {
+        String xml = JAXBUtils.marshallJaxBObjectToString(new TestMessage("PING", "hello"));
+
+        TestMessage result = JAXBUtils.unMarshallMessage(xml, TestMessage.class);
+
+        assertEquals("PING", result.getMethod());
+        assertEquals("hello", result.getBody());
+    }
+
+    @Test
+    public void testMarshallToBufferAndUnmarshallFromStream() throws Exception {
+        MarshallingBuffer buffer = JAXBUtils.marshallJaxBObjectToBuffer(new TestMessage("PING", "h\u00e9llo"));
+
+        String xml = new String(buffer.getBuffer(), 0, buffer.size(), StandardCharsets.UTF_8);
+        assertTrue(xml.contains("<body>h\u00e9llo</body>"));
+
+        TestMessage result = JAXBUtils.unMarshallMessage(new ByteArrayInputStream(buffer.getBuffer(), 0, buffer.size()), TestMessage.class);
+        assertEquals("h\u00e9llo", result.getBody());
+    }
+
+    @Test
+    public void testPeekElement() throws Exception {
+        String xml = "<testMessage><body><nested>ignored</nested></body><method>PING</method></testMessage>";
+
+        assertEquals("PING", JAXBUtils.peekElement(xml, String.class, "method"));
+        assertEquals("PING", JAXBUtils.peekElement(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), String.class, "method"));
+        assertEquals("ignored", JAXBUtils.peekElement(xml, String.class, "body", "nested"));
+        assertNull(JAXBUtils.peekElement(xml, String.class, "missing"));
+    }
+
+    @Test
+    public void testPeekFirstChild() throws Exception {
+        String xml = JAXBUtils.marshallJaxBObjectToString(new TestMessage("PING", "hello"));
+
+        assertEquals("PING", JAXBUtils.peekElement(xml, String.class));
+    }
+
+    @Test
+    public void testContextIsCreatedOnce() throws Exception {
+        JAXBUtils.warmUp(TestMessage.class);
+
+        assertSame(JAXBUtils.getJAXBContext(TestMessage.class), JAXBUtils.getJAXBContext(TestMessage.class));
+    }
+
+    @Test
+    public void testConcurrentMarshalling() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String body = "body" + i;
+                tasks.add(() -> {
+                    String xml = JAXBUtils.marshallJaxBObjectToString(new TestMessage("PING", body), "UTF-8", false);
+                    TestMessage result = JAXBUtils.unMarshallMessage(xml, TestMessage.class);
+                    return result.getBody();
+                });
+            }
+            List<Future<String>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("body" + i, results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClearThreadPoolDropsTheBuffer() {
+        MarshallingBuffer buffer = MarshallingBuffer.forCurrentThread();
+        assertSame(buffer, MarshallingBuffer.forCurrentThread());
+
+        JAXBUtils.clearThreadPool();
+
+        assertNotSame(buffer, MarshallingBuffer.forCurrentThread());
+    }
+}
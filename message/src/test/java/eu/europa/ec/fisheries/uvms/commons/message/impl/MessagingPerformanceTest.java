@@ -0,0 +1,327 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.BatchMessage;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load scenarios of the JMS hot paths against an embedded broker, reporting throughput and latency percentiles.
+ * Skipped unless {@value #ENABLED_PROPERTY} is true, run them with {@code mvn -Pperf test} in the message module. A
+ * scenario fails if its p99 latency exceeds {@value #MAX_P99_PROPERTY} milliseconds when that property is set.
+ */
+public class MessagingPerformanceTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessagingPerformanceTest.class);
+
+    static final String ENABLED_PROPERTY = "uvms.perf";
+    static final String MAX_P99_PROPERTY = "uvms.perf.maxP99Millis";
+    private static final int MESSAGES = Integer.getInteger("uvms.perf.messages", 2000);
+
+    private EmbeddedBroker broker;
+
+    @Before
+    public void startBroker() throws Exception {
+        Assume.assumeTrue("Performance tests are enabled with -D" + ENABLED_PROPERTY + "=true", Boolean.getBoolean(ENABLED_PROPERTY));
+        broker = new EmbeddedBroker(false);
+    }
+
+    @After
+    public void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.close();
+        }
+    }
+
+    @Test
+    public void testRequestReplyWithSelector() throws Exception {
+        String payload = payload(1024);
+        try (JMSContext clientContext = broker.createContext();
+             Responder ignored = new Responder(broker, clientContext.createQueue("PerfRequest"), payload)) {
+            Queue requests = clientContext.createQueue("PerfRequest");
+            Queue replies = clientContext.createQueue("PerfReply");
+            LatencyHistogram latency = new LatencyHistogram();
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                // a session per request like the transaction scoped context of the container, closing the consumer
+                try (JMSContext requestContext = clientContext.createContext(JMSContext.AUTO_ACKNOWLEDGE)) {
+                    long sent = System.nanoTime();
+                    String messageId = EmbeddedBroker.wire(new Producer(requests), requestContext).sendModuleMessage(payload, replies);
+                    TextMessage reply = EmbeddedBroker.wire(new Consumer(replies), requestContext).getMessage(messageId, TextMessage.class, 5000L);
+                    latency.record(System.nanoTime() - sent);
+                    assertEquals(payload, reply.getText());
+                }
+            }
+            report("request/reply with selector", MESSAGES, System.nanoTime() - start, latency);
+        }
+    }
+
+    @Test
+    public void testRequestReplyWithDispatcher() throws Exception {
+        String payload = payload(1024);
+        int window = 100;
+        try (JMSContext clientContext = broker.createContext();
+             JMSContext dispatcherContext = broker.createContext();
+             Responder ignored = new Responder(broker, clientContext.createQueue("PerfDispatchedRequest"), payload)) {
+            Queue requests = clientContext.createQueue("PerfDispatchedRequest");
+            Queue replies = clientContext.createQueue("PerfDispatchedReply");
+            JMSConsumer dispatcherConsumer = ReplyDispatcher.forDestination(replies).listen(dispatcherContext);
+            RequestReplyClient client = new RequestReplyClient(EmbeddedBroker.wire(new Producer(requests), clientContext), replies, window);
+            LatencyHistogram latency = new LatencyHistogram();
+            long start = System.nanoTime();
+            for (int sent = 0; sent < MESSAGES; sent += window) {
+                List<CompletableFuture<Message>> inFlight = new ArrayList<>(window);
+                for (int i = 0; i < window && sent + i < MESSAGES; i++) {
+                    long requested = System.nanoTime();
+                    inFlight.add(client.request(payload, null, 5000)
+                            .whenComplete((reply, failure) -> latency.record(System.nanoTime() - requested)));
+                }
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            }
+            report("request/reply with dispatcher, " + window + " in flight", MESSAGES, System.nanoTime() - start, latency);
+            dispatcherConsumer.close();
+        }
+    }
+
+    @Test
+    public void testTopicFanOut() throws Exception {
+        int subscribers = 4;
+        String payload = payload(1024);
+        CountDownLatch delivered = new CountDownLatch(subscribers * MESSAGES);
+        LatencyHistogram latency = new LatencyHistogram();
+        List<JMSContext> subscriberContexts = new ArrayList<>();
+        try (JMSContext publisherContext = broker.createContext()) {
+            Topic topic = publisherContext.createTopic("PerfEventBus");
+            for (int i = 0; i < subscribers; i++) {
+                JMSContext subscriberContext = broker.createContext();
+                subscriberContexts.add(subscriberContext);
+                subscriberContext.createConsumer(topic).setMessageListener(message -> {
+                    try {
+                        latency.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - message.getJMSTimestamp()));
+                    } catch (Exception e) {
+                        // the delivery still counts
+                    }
+                    delivered.countDown();
+                });
+            }
+            TopicProducer publisher = EmbeddedBroker.wire(new TopicProducer(topic), publisherContext);
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++) {
+                publisher.sendEventBusMessage(payload, "PerfService");
+            }
+            assertTrue(delivered.await(60, TimeUnit.SECONDS));
+            report("topic fan-out to " + subscribers + " subscribers (ms resolution)", subscribers * MESSAGES, System.nanoTime() - start, latency);
+        } finally {
+            for (JMSContext subscriberContext : subscriberContexts) {
+                subscriberContext.close();
+            }
+        }
+    }
+
+    @Test
+    public void testLargePayloads() throws Exception {
+        String payload = payload(1024 * 1024);
+        int count = Math.max(1, MESSAGES / 40);
+        for (PayloadCompression compression : new PayloadCompression[]{PayloadCompression.DISABLED, PayloadCompression.of(CompressionCodec.GZIP, 8192)}) {
+            try (JMSContext producerContext = broker.createContext();
+                 JMSContext consumerContext = broker.createContext()) {
+                Queue queue = producerContext.createQueue("PerfLargePayload");
+                Producer producer = EmbeddedBroker.wire(new Producer(queue, compression), producerContext);
+                JMSConsumer consumer = consumerContext.createConsumer(queue);
+                LatencyHistogram latency = new LatencyHistogram();
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    long sent = System.nanoTime();
+                    producer.sendModuleMessage(payload, null);
+                    Message received = consumer.receive(10000);
+                    assertEquals(payload.length(), MessageBodies.readText(received).length());
+                    latency.record(System.nanoTime() - sent);
+                }
+                String codec = compression.getCodec() == null ? "uncompressed" : compression.getCodec().getContentEncoding();
+                report("1 MB payloads, " + codec, count, System.nanoTime() - start, latency);
+                consumer.close();
+            }
+        }
+    }
+
+    @Test
+    public void testBatchChunkSizes() throws Exception {
+        broker.close();
+        broker = new EmbeddedBroker(true);
+        List<BatchMessage> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            messages.add(new BatchMessage(payload(1024), Collections.<String, String>emptyMap(), null));
+        }
+        for (int chunkSize : new int[]{1, 10, 100, 1000}) {
+            try (JMSContext producerContext = broker.createContext();
+                 JMSContext consumerContext = broker.createContext()) {
+                Queue queue = producerContext.createQueue("PerfBatch");
+                Producer producer = EmbeddedBroker.wire(new Producer(queue, broker.getConnectionFactory()), producerContext);
+                long start = System.nanoTime();
+                List<String> messageIds = producer.sendBatch(messages, chunkSize);
+                long elapsed = System.nanoTime() - start;
+                assertEquals(MESSAGES, messageIds.size());
+                report("persistent batch with chunks of " + chunkSize, MESSAGES, elapsed, null);
+
+                JMSConsumer consumer = consumerContext.createConsumer(queue);
+                AtomicLong drained = new AtomicLong();
+                while (consumer.receive(1000) != null) {
+                    drained.incrementAndGet();
+                }
+                assertEquals(MESSAGES, drained.get());
+                consumer.close();
+            }
+        }
+    }
+
+    private static void report(String scenario, int messages, long elapsedNanos, LatencyHistogram latency) {
+        double perSecond = messages * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        if (latency == null) {
+            LOGGER.info("{}: {} msg/s", scenario, Math.round(perSecond));
+            return;
+        }
+        LOGGER.info("{}: {} msg/s, p50 {} us, p99 {} us, max {} us", scenario, Math.round(perSecond),
+                latency.getPercentileMicros(50), latency.getPercentileMicros(99), latency.getMaxMicros());
+        String maxP99 = System.getProperty(MAX_P99_PROPERTY);
+        if (maxP99 != null) {
+            assertTrue(scenario + " p99 above " + maxP99 + " ms",
+                    latency.getPercentileMicros(99) <= TimeUnit.MILLISECONDS.toMicros(Long.parseLong(maxP99)));
+        }
+    }
+
+    private static String payload(int length) {
+        StringBuilder payload = new StringBuilder(length + 64);
+        for (int i = 0; payload.length() < length; i++) {
+            payload.append("<position lat=\"57.").append(i).append("\" lon=\"11.").append(i).append("\"/>");
+        }
+        return payload.substring(0, length);
+    }
+
+    /**
+     * Replies to every request with the given payload from its own context.
+     */
+    private static final class Responder implements AutoCloseable {
+
+        private final JMSContext context;
+
+        private Responder(EmbeddedBroker broker, Destination requests, String reply) {
+            context = broker.createContext();
+            Producer producer = EmbeddedBroker.wire(new Producer(requests), context);
+            context.createConsumer(requests).setMessageListener(message -> {
+                try {
+                    producer.sendResponseMessageToSender((TextMessage) message, reply);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+
+    private static final class Producer extends AbstractProducer {
+
+        private final Destination destination;
+        private final PayloadCompression compression;
+        private final ConnectionFactory batchConnectionFactory;
+
+        private Producer(Destination destination) {
+            this(destination, PayloadCompression.DISABLED, null);
+        }
+
+        private Producer(Destination destination, PayloadCompression compression) {
+            this(destination, compression, null);
+        }
+
+        private Producer(Destination destination, ConnectionFactory batchConnectionFactory) {
+            this(destination, PayloadCompression.DISABLED, batchConnectionFactory);
+        }
+
+        private Producer(Destination destination, PayloadCompression compression, ConnectionFactory batchConnectionFactory) {
+            this.destination = destination;
+            this.compression = compression;
+            this.batchConnectionFactory = batchConnectionFactory;
+        }
+
+        @Override
+        public Destination getDestination() {
+            return destination;
+        }
+
+        @Override
+        protected PayloadCompression getPayloadCompression() {
+            return compression;
+        }
+
+        @Override
+        protected ConnectionFactory getBatchConnectionFactory() {
+            return batchConnectionFactory;
+        }
+    }
+
+    private static final class TopicProducer extends AbstractTopicProducer {
+
+        private final Destination destination;
+
+        private TopicProducer(Destination destination) {
+            this.destination = destination;
+        }
+
+        @Override
+        public Destination getDestination() {
+            return destination;
+        }
+    }
+
+    private static final class Consumer extends AbstractConsumer {
+
+        private final Destination destination;
+
+        private Consumer(Destination destination) {
+            this.destination = destination;
+        }
+
+        @Override
+        public Destination getDestination() {
+            return destination;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+
+import javax.jms.BytesMessage;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+import org.junit.Test;
+
+public class PayloadCodecsTest {
+
+    @Test
+    public void testForContentType() {
+        assertSame(PayloadCodecs.JAXB, PayloadCodecs.forContentType(null));
+        assertSame(PayloadCodecs.JAXB, PayloadCodecs.forContentType("application/xml"));
+        assertSame(PayloadCodecs.JSON, PayloadCodecs.forContentType("application/json"));
+        assertSame(PayloadCodecs.BINARY, PayloadCodecs.forContentType("application/x-uvms-binary"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownContentType() {
+        PayloadCodecs.forContentType("application/x-unknown");
+    }
+
+    @Test
+    public void testSupports() {
+        assertTrue(PayloadCodecs.JAXB.supports(TestMessage.class));
+        assertFalse(PayloadCodecs.JAXB.supports(Position.class));
+        assertTrue(PayloadCodecs.BINARY.supports(Position.class));
+        assertFalse(PayloadCodecs.BINARY.supports(TestMessage.class));
+    }
+
+    @Test
+    public void testForType() {
+        assertSame(PayloadCodecs.JAXB, PayloadCodecs.forType(TestMessage.class, PayloadCodecs.JAXB));
+        assertSame(PayloadCodecs.BINARY, PayloadCodecs.forType(Position.class, PayloadCodecs.JAXB));
+        assertSame(PayloadCodecs.JSON, PayloadCodecs.forType(Asset.class, PayloadCodecs.JAXB));
+        assertSame(PayloadCodecs.JAXB, PayloadCodecs.forType(TestMessage.class, PayloadCodecs.BINARY));
+        assertSame(PayloadCodecs.JSON, PayloadCodecs.forType(Position.class, PayloadCodecs.JSON));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        Asset asset = new Asset();
+        asset.setName("Nordic Star");
+        asset.setUpdated(Instant.ofEpochMilli(1588587330000L));
+
+        BytesMessage message = MessageBodies.createMessage(FakeJms.context(), asset, PayloadCodecs.JSON);
+        assertEquals("application/json", message.getStringProperty(MessageConstants.JMS_CONTENT_TYPE));
+
+        Asset decoded = MessageBodies.decode(message, Asset.class);
+
+        assertEquals("Nordic Star", decoded.getName());
+        assertEquals(asset.getUpdated(), decoded.getUpdated());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PayloadCodecs.BINARY.encode(new Position("SWE12345", 57.7, 11.9, 1588587330000L), out);
+        assertEquals(8 + 2 + 8 + 8 + 8, out.size());
+
+        Position position = PayloadCodecs.BINARY.decode(new ByteArrayInputStream(out.toByteArray()), Position.class);
+
+        assertEquals("SWE12345", position.assetId);
+        assertEquals(57.7, position.latitude, 0);
+        assertEquals(11.9, position.longitude, 0);
+        assertEquals(1588587330000L, position.timestamp);
+    }
+
+    @Test(expected = IOException.class)
+    public void testBinaryRejectsOtherTypes() throws Exception {
+        PayloadCodecs.BINARY.decode(new ByteArrayInputStream(new byte[0]), TestMessage.class);
+    }
+
+    public static class Asset {
+
+        private String name;
+        private Instant updated;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Instant getUpdated() {
+            return updated;
+        }
+
+        public void setUpdated(Instant updated) {
+            this.updated = updated;
+        }
+    }
+
+    public static class Position implements BinaryPayload {
+
+        private String assetId;
+        private double latitude;
+        private double longitude;
+        private long timestamp;
+
+        public Position() {
+        }
+
+        Position(String assetId, double latitude, double longitude, long timestamp) {
+            this.assetId = assetId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeUTF(assetId);
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+            out.writeLong(timestamp);
+        }
+
+        @Override
+        public void readFrom(DataInput in) throws IOException {
+            assetId = in.readUTF();
+            latitude = in.readDouble();
+            longitude = in.readDouble();
+            timestamp = in.readLong();
+        }
+    }
+}
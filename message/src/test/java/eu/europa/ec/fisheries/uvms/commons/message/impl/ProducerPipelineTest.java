@@ -0,0 +1,176 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSContext;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.InMemoryMessagingMetrics;
+import eu.europa.ec.fisheries.uvms.commons.message.metrics.MessagingMetricsRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+public class ProducerPipelineTest {
+
+    private final List<String> createdProducers = new ArrayList<>();
+    private final Object[] transactionKey = {null};
+    private final Map<Object, Object> transactionResources = new HashMap<>();
+
+    @After
+    public void tearDown() {
+        MessagingMetricsRegistry.register(null);
+    }
+
+    @Test
+    public void testSendsAreRecordedInTheMetrics() {
+        InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics();
+        MessagingMetricsRegistry.register(metrics);
+        List<Message> sent = new ArrayList<>();
+        ProducerPipeline pipeline = new ProducerPipeline(FakeJms.context(new ArrayDeque<>(), sent), null);
+
+        pipeline.send(FakeJms.queue("UVMSMovementEvent"), FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(FakeJms.queue("UVMSMovementEvent"), FakeJms.textMessage("<b/>"), DeliveryMode.PERSISTENT, 0);
+
+        assertEquals(2, sent.size());
+        InMemoryMessagingMetrics.DestinationMetrics destination = metrics.getDestinations().get("UVMSMovementEvent");
+        assertEquals(2, destination.getSentCount());
+        assertEquals(8, destination.getSentPayloadSize());
+        assertEquals(2, destination.getSendLatency().getCount());
+    }
+
+    @Test
+    public void testTemporaryQueuesShareTheirMetrics() {
+        InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics();
+        MessagingMetricsRegistry.register(metrics);
+        ProducerPipeline pipeline = new ProducerPipeline(FakeJms.context(), null);
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.send(FakeJms.temporaryQueue("ID:reply-" + i), FakeJms.textMessage("<reply/>"), DeliveryMode.NON_PERSISTENT, 0);
+        }
+
+        assertEquals(Arrays.asList(Destinations.TEMPORARY_QUEUE), new ArrayList<>(metrics.getDestinations().keySet()));
+        assertEquals(100, metrics.getDestinations().get(Destinations.TEMPORARY_QUEUE).getSentCount());
+    }
+
+    @Test
+    public void testProducerIsCreatedOncePerProfile() {
+        ProducerPipeline pipeline = new ProducerPipeline(countingContext(), null);
+        Queue movement = FakeJms.queue("UVMSMovementEvent");
+        Queue asset = FakeJms.queue("UVMSAssetEvent");
+
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.NON_PERSISTENT, 0);
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 5000);
+        pipeline.send(asset, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(asset, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+
+        assertEquals(Arrays.asList("2/0", "1/0", "2/5000", "2/0"), createdProducers);
+    }
+
+    @Test
+    public void testTemporaryDestinationsAreNotCached() {
+        ProducerPipeline pipeline = new ProducerPipeline(countingContext(), null);
+        TemporaryQueue replyTo = FakeJms.temporaryQueue("ID:reply-1");
+
+        pipeline.send(replyTo, FakeJms.textMessage("<reply/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(replyTo, FakeJms.textMessage("<reply/>"), DeliveryMode.PERSISTENT, 0);
+
+        assertEquals(2, createdProducers.size());
+    }
+
+    @Test
+    public void testProducersAreCachedPerTransaction() {
+        ProducerPipeline pipeline = new ProducerPipeline(countingContext(), registry());
+        Queue movement = FakeJms.queue("UVMSMovementEvent");
+
+        transactionKey[0] = "tx-1";
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        assertEquals(1, createdProducers.size());
+        assertTrue(transactionResources.containsKey(pipeline));
+
+        transactionKey[0] = "tx-2";
+        transactionResources.clear();
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        assertEquals(2, createdProducers.size());
+    }
+
+    @Test
+    public void testProducerIsNotReusedOutsideTransactions() {
+        ProducerPipeline pipeline = new ProducerPipeline(countingContext(), registry());
+        Queue movement = FakeJms.queue("UVMSMovementEvent");
+
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+        pipeline.send(movement, FakeJms.textMessage("<a/>"), DeliveryMode.PERSISTENT, 0);
+
+        assertEquals(2, createdProducers.size());
+        assertTrue(transactionResources.isEmpty());
+    }
+
+    /*
+     * A context creating a new producer per createProducer call, recorded as "deliveryMode/timeToLive" once configured.
+     */
+    private JMSContext countingContext() {
+        return (JMSContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JMSContext.class},
+                (proxy, method, args) -> {
+                    if (!"createProducer".equals(method.getName())) {
+                        return null;
+                    }
+                    int index = createdProducers.size();
+                    createdProducers.add(null);
+                    int[] deliveryMode = {0};
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JMSProducer.class},
+                            (producer, producerMethod, producerArgs) -> {
+                                if ("setDeliveryMode".equals(producerMethod.getName())) {
+                                    deliveryMode[0] = (Integer) producerArgs[0];
+                                } else if ("setTimeToLive".equals(producerMethod.getName())) {
+                                    createdProducers.set(index, deliveryMode[0] + "/" + producerArgs[0]);
+                                }
+                                return producerMethod.getReturnType() == JMSProducer.class ? producer : null;
+                            });
+                });
+    }
+
+    private TransactionSynchronizationRegistry registry() {
+        return (TransactionSynchronizationRegistry) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{TransactionSynchronizationRegistry.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTransactionKey":
+                            return transactionKey[0];
+                        case "getResource":
+                            return transactionResources.get(args[0]);
+                        case "putResource":
+                            transactionResources.put(args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,108 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.jms.Destination;
+import javax.jms.Message;
+
+import org.junit.Test;
+
+public class ReplyDispatcherTest {
+
+    private final ReplyDispatcher dispatcher = new ReplyDispatcher(new Destination() {});
+
+    @Test
+    public void testReplyAfterRegistration() throws Exception {
+        CompletableFuture<Message> future = dispatcher.register("ID:1", 5000);
+        Message reply = reply("ID:1");
+
+        dispatcher.onMessage(reply);
+
+        assertSame(reply, future.get(1, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void testReplyBeforeRegistration() throws Exception {
+        Message reply = reply("ID:2");
+        dispatcher.onMessage(reply);
+
+        CompletableFuture<Message> future = dispatcher.register("ID:2", 5000);
+
+        assertSame(reply, future.get(1, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getUnclaimedCount());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CompletableFuture<Message> future = dispatcher.register("ID:3", 10);
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // the timeout completes the future on the delayer thread, which may remove the registration after get returns
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (dispatcher.getPendingCount() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void testCancel() {
+        CompletableFuture<Message> future = dispatcher.register("ID:4", 5000);
+
+        future.cancel(true);
+
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void testCloseReleasesTheDispatcher() throws Exception {
+        ReplyDispatcher first = ReplyDispatcher.forDestination(FakeJms.queue("UVMSCloseReplyQueue"));
+        CompletableFuture<Message> future = first.register("ID:5", 5000);
+
+        first.close();
+
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Expected the wait to end");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertNotSame(first, ReplyDispatcher.forDestination(FakeJms.queue("UVMSCloseReplyQueue")));
+        ReplyDispatcher.forDestination(FakeJms.queue("UVMSCloseReplyQueue")).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTemporaryDestinationsAreRejected() {
+        ReplyDispatcher.forDestination(FakeJms.temporaryQueue("ID:reply-1"));
+    }
+
+    static Message reply(String correlationId) {
+        return (Message) Proxy.newProxyInstance(ReplyDispatcherTest.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> "getJMSCorrelationID".equals(method.getName()) ? correlationId : null);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestReplyClientTest {
+
+    private final List<Message> sent = new ArrayList<>();
+    private Queue replyTo;
+    private ReplyDispatcher dispatcher;
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        replyTo = FakeJms.queue("UVMSReplyQueue-" + System.nanoTime());
+        dispatcher = ReplyDispatcher.forDestination(replyTo);
+        directory = Files.createTempDirectory("requestreply");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dispatcher.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testRequestsAboveTheLimitAreRejected() throws Exception {
+        RequestReplyClient client = new RequestReplyClient(producer(), replyTo, 1);
+
+        CompletableFuture<Message> first = client.request("<request/>", null, 5000);
+        CompletableFuture<Message> second = client.request("<request/>", null, 5000);
+
+        assertEquals(1, sent.size());
+        assertEquals(0, client.getAvailablePermits());
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            fail("Expected a rejection");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        Message reply = reply(sent.get(0).getJMSMessageID(), "<response/>");
+        dispatcher.onMessage(reply);
+
+        assertEquals(reply, first.get(1, TimeUnit.SECONDS));
+        assertEquals(1, client.getAvailablePermits());
+        client.request("<request/>", null, 5000).cancel(true);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testTimeoutReleasesThePermit() throws Exception {
+        RequestReplyClient client = new RequestReplyClient(producer(), replyTo, 1);
+
+        CompletableFuture<Message> reply = client.request("<request/>", null, 10);
+
+        try {
+            reply.get(1, TimeUnit.SECONDS);
+            fail("Expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // the permit is released by the delayer thread completing the future, possibly after get returned
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (client.getAvailablePermits() != 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, client.getAvailablePermits());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void testCancellingTheUnmarshalledReplyCancelsTheReply() {
+        RequestReplyClient client = new RequestReplyClient(producer(), replyTo, 1);
+
+        CompletableFuture<TestMessage> reply = client.request("<request/>", null, 5000, TestMessage.class);
+        assertEquals(1, dispatcher.getPendingCount());
+
+        reply.cancel(true);
+
+        assertEquals(0, dispatcher.getPendingCount());
+        assertEquals(1, client.getAvailablePermits());
+    }
+
+    @Test
+    public void testClaimCheckedReplyIsReleased() throws Exception {
+        ClaimCheck claimCheck = ClaimCheck.of(new FileSystemBlobStore("requestreply", directory, Duration.ofHours(1)), 5);
+        RequestReplyClient client = new RequestReplyClient(producer(), replyTo, 1);
+
+        CompletableFuture<TestMessage> reply = client.request("<request/>", null, 5000, TestMessage.class);
+        Message response = MessageBodies.createMessage(FakeJms.context(), "<testMessage><method>GET</method><body>asset</body></testMessage>",
+                PayloadCompression.DISABLED, claimCheck);
+        response.setJMSCorrelationID(sent.get(0).getJMSMessageID());
+        dispatcher.onMessage(response);
+
+        assertEquals("asset", reply.get(1, TimeUnit.SECONDS).getBody());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private AbstractProducer producer() {
+        AbstractProducer producer = new AbstractProducer() {
+            @Override
+            public Destination getDestination() {
+                return FakeJms.queue("UVMSRequestQueue");
+            }
+        };
+        producer.context = FakeJms.context(new ArrayDeque<>(), sent);
+        return producer;
+    }
+
+    private static Message reply(String correlationId, String text) throws Exception {
+        Message reply = FakeJms.textMessage(text);
+        reply.setJMSCorrelationID(correlationId);
+        return reply;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import eu.europa.ec.fisheries.uvms.commons.message.api.MessageConstants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.Message;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testDelayGrowsExponentiallyWithJitter() {
+        RetryPolicy policy = RetryPolicy.of(6, 100, 1000);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelay(0);
+            assertTrue(first >= 50 && first <= 100);
+            long third = policy.getDelay(2);
+            assertTrue(third >= 200 && third <= 400);
+            long capped = policy.getDelay(10);
+            assertTrue(capped >= 500 && capped <= 1000);
+        }
+        long huge = policy.getDelay(Integer.MAX_VALUE);
+        assertTrue(huge >= 500 && huge <= 1000);
+    }
+
+    @Test
+    public void testPoisonAfterMaxRetries() throws Exception {
+        RetryPolicy policy = RetryPolicy.defaults();
+        Map<String, Object> properties = new HashMap<>();
+        Message message = message(properties);
+        assertFalse(policy.isPoison(message));
+        assertEquals(0, RetryPolicy.getRetryCount(message));
+
+        properties.put(MessageConstants.JMS_RETRY_COUNT, MessageConstants.JMS_MAX_REDELIVERIES - 1);
+        assertFalse(policy.isPoison(message));
+        properties.put(MessageConstants.JMS_RETRY_COUNT, MessageConstants.JMS_MAX_REDELIVERIES);
+        assertTrue(policy.isPoison(message));
+    }
+
+    @Test
+    public void testPoisonAfterBrokerRedeliveries() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(MessageConstants.JMS_DELIVERY_COUNT, MessageConstants.JMS_MAX_REDELIVERIES + 1);
+        assertTrue(RetryPolicy.defaults().isPoison(message(properties)));
+    }
+
+    @Test
+    public void testNonRetryableCause() {
+        RetryPolicy policy = RetryPolicy.defaults().withNonRetryable(IllegalArgumentException.class);
+        assertTrue(policy.isRetryable(null));
+        assertTrue(policy.isRetryable(new UncheckedIOException(new IOException("timeout"))));
+        assertFalse(policy.isRetryable(new NumberFormatException("not a number")));
+        assertFalse(policy.isRetryable(new RuntimeException(new IllegalArgumentException("invalid"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPolicy() {
+        RetryPolicy.of(3, 1000, 100);
+    }
+
+    private static Message message(Map<String, Object> properties) {
+        return (Message) Proxy.newProxyInstance(RetryPolicyTest.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "propertyExists":
+                            return properties.containsKey(args[0]);
+                        case "getIntProperty":
+                            return properties.get(args[0]);
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
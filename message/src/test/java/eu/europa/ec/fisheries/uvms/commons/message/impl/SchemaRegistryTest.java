@@ -0,0 +1,99 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SchemaRegistryTest {
+
+    private static final String XSD = "xsd/testMessage.xsd";
+    private static final String INVALID = "<testMessage><body>no method</body></testMessage>";
+
+    @After
+    public void resetMode() {
+        SchemaRegistry.setValidationMode(ValidationMode.FULL);
+    }
+
+    @Test
+    public void testSchemaIsCompiledOnce() throws Exception {
+        assertSame(SchemaRegistry.getSchema(TestMessage.class, XSD), SchemaRegistry.getSchema(TestMessage.class, XSD));
+    }
+
+    @Test(expected = JAXBException.class)
+    public void testUnknownLocation() throws Exception {
+        SchemaRegistry.getSchema(TestMessage.class, "xsd/missing.xsd");
+    }
+
+    @Test
+    public void testValidMessage() throws Exception {
+        TestMessage result = JAXBUtils.unMarshallAndValidateMessage("<testMessage><method>PING</method></testMessage>", TestMessage.class, XSD);
+
+        assertEquals("PING", result.getMethod());
+    }
+
+    @Test(expected = JAXBException.class)
+    public void testInvalidMessageIsRejectedInFullMode() throws Exception {
+        JAXBUtils.unMarshallAndValidateMessage(INVALID, TestMessage.class, XSD);
+    }
+
+    @Test
+    public void testInvalidMessageIsAcceptedWhenValidationIsOff() throws Exception {
+        SchemaRegistry.setValidationMode(ValidationMode.OFF);
+
+        TestMessage result = JAXBUtils.unMarshallAndValidateMessage(INVALID, TestMessage.class, XSD);
+
+        assertEquals("no method", result.getBody());
+    }
+
+    @Test
+    public void testSampledMode() {
+        SchemaRegistry.setValidationMode(ValidationMode.SAMPLED);
+        int previous = SchemaRegistry.getSamplePercentage();
+        try {
+            SchemaRegistry.setSamplePercentage(0);
+            assertFalse(SchemaRegistry.shouldValidate());
+            SchemaRegistry.setSamplePercentage(100);
+            assertTrue(SchemaRegistry.shouldValidate());
+        } finally {
+            SchemaRegistry.setSamplePercentage(previous);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValidationModeIsRejected() {
+        SchemaRegistry.setValidationMode(null);
+    }
+
+    @Test
+    public void testValidationModePropertyIgnoresCaseAndFallsBackToFull() {
+        assertEquals(ValidationMode.SAMPLED, SchemaRegistry.parseValidationMode("sampled"));
+        assertEquals(ValidationMode.OFF, SchemaRegistry.parseValidationMode(" Off "));
+        assertEquals(ValidationMode.FULL, SchemaRegistry.parseValidationMode("of"));
+        assertEquals(ValidationMode.FULL, SchemaRegistry.parseValidationMode(null));
+    }
+
+    @Test
+    public void testSamplePercentagePropertyIsClamped() {
+        assertEquals(25, SchemaRegistry.parseSamplePercentage("25"));
+        assertEquals(100, SchemaRegistry.parseSamplePercentage("250"));
+        assertEquals(0, SchemaRegistry.parseSamplePercentage("-5"));
+        assertEquals(10, SchemaRegistry.parseSamplePercentage("ten"));
+        assertEquals(10, SchemaRegistry.parseSamplePercentage(null));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+Developed by the European Commission - Directorate General for Maritime Affairs and Fisheries @ European Union, 2015-2016.
+
+This file is part of the Integrated Fisheries Data Management (IFDM) Suite. The IFDM Suite is free software: you can redistribute it
+and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of
+the License, or any later version. The IFDM Suite is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+details. You should have received a copy of the GNU General Public License along with the IFDM Suite. If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package eu.europa.ec.fisheries.uvms.commons.message.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class InMemoryMessagingMetricsTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(99));
+        for (int i = 1; i <= 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertEquals(100, histogram.getCount());
+        long p50 = histogram.getPercentileMicros(50);
+        assertTrue(p50 >= 100 && p50 < 200);
+        long p99 = histogram.getPercentileMicros(99);
+        assertTrue(p99 >= 100 && p99 < 200);
+        assertEquals(50_000, histogram.getPercentileMicros(100));
+        assertEquals(50_000, histogram.getMaxMicros());
+        assertEquals(599, histogram.getMeanMicros(), 0.001);
+    }
+
+    @Test
+    public void testDestinationMetrics() {
+        InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics();
+        metrics.messageSent("UVMSMovementEvent", 1000, 2000);
+        metrics.messageSent("UVMSMovementEvent", 500, 4000);
+        metrics.sendFailed("UVMSMovementEvent");
+        metrics.messageReceived("UVMSMovementEvent", 300);
+        metrics.replyReceived("UVMSMovementEvent", TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.replyTimedOut("UVMSMovementEvent");
+
+        InMemoryMessagingMetrics.DestinationMetrics destination = metrics.getDestinations().get("UVMSMovementEvent");
+        assertEquals(2, destination.getSentCount());
+        assertEquals(1, destination.getFailedCount());
+        assertEquals(1500, destination.getSentPayloadSize());
+        assertEquals(1, destination.getReceivedCount());
+        assertEquals(300, destination.getReceivedPayloadSize());
+        assertEquals(1, destination.getReplyLatency().getCount());
+        assertEquals(1, destination.getReplyTimeoutCount());
+        assertEquals(3, destination.getSendLatency().getMeanMicros(), 0.001);
+    }
+
+    @Test
+    public void testDestinationLimit() {
+        InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics(2);
+        metrics.messageSent("UVMSMovementEvent", 100, 1000);
+        metrics.messageSent("UVMSAssetEvent", 100, 1000);
+        metrics.messageSent("ID:reply-1", 100, 1000);
+        metrics.sendFailed("ID:reply-2");
+        metrics.messageSent("UVMSMovementEvent", 100, 1000);
+
+        assertEquals(3, metrics.getDestinations().size());
+        assertEquals(2, metrics.getDestinations().get("UVMSMovementEvent").getSentCount());
+        InMemoryMessagingMetrics.DestinationMetrics other = metrics.getDestinations().get(InMemoryMessagingMetrics.OTHER_DESTINATIONS);
+        assertEquals(1, other.getSentCount());
+        assertEquals(1, other.getFailedCount());
+    }
+
+    @Test
+    public void testMarshallingPerType() {
+        InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics();
+        metrics.marshalled(String.class, 1000);
+        metrics.unmarshalled(Integer.class, 1000);
+        metrics.unmarshalled(Integer.class, 3000);
+
+        assertEquals(1, metrics.getMarshalling().get(String.class.getName()).getCount());
+        assertEquals(2, metrics.getUnmarshalling().get(Integer.class.getName()).getCount());
+    }
+
+    @Test
+    public void testRegistry() {
+        try {
+            InMemoryMessagingMetrics metrics = new InMemoryMessagingMetrics();
+            MessagingMetricsRegistry.register(metrics);
+            assertSame(metrics, MessagingMetricsRegistry.get());
+            assertTrue(MessagingMetricsRegistry.isEnabled());
+        } finally {
+            MessagingMetricsRegistry.register(null);
+        }
+        assertSame(MessagingMetrics.NOOP, MessagingMetricsRegistry.get());
+    }
+}